@@ -2,7 +2,9 @@ package ru.smirnovv;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,12 +13,14 @@ import javax.servlet.http.HttpServletRequest;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 /**
  * Сервис управления списком покупок с возможностью планирования.
  */
 @SuppressWarnings("hideUtilityClassConstructor")
 @SpringBootApplication
+@EnableScheduling
 public class Application {
     /**
      * Точка входа.
@@ -63,5 +67,26 @@ public class Application {
                     new ErrorType(request.getRequestURI(), BAD_REQUEST.value(), exception.getMessage()),
                     BAD_REQUEST);
         }
+
+        /**
+         * Обрабатывает {@link ServiceUnavailableException} и возвращает ответ с информацией об ошибке
+         * и заголовком Retry-After: перегрузку сервиса и разомкнутый автоматический выключатель хранилища.
+         *
+         * @param request   запрос, где произошла ошибка.
+         * @param exception выброшенная ошибка.
+         * @return ответ с информациоей об ошибке.
+         * @see ErrorType
+         */
+        @ExceptionHandler(ServiceUnavailableException.class)
+        public final ResponseEntity<ErrorType> serviceUnavailableException(
+                final HttpServletRequest request, final ServiceUnavailableException exception) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfter()));
+
+            return new ResponseEntity<>(
+                    new ErrorType(request.getRequestURI(), SERVICE_UNAVAILABLE.value(), exception.getMessage()),
+                    headers,
+                    SERVICE_UNAVAILABLE);
+        }
     }
 }
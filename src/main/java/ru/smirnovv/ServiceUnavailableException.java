@@ -0,0 +1,32 @@
+package ru.smirnovv;
+
+/**
+ * Исключение, указывающее что запрос временно не может быть выполнен и его следует повторить позже.
+ * Отвечает 503 с заголовком Retry-After.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    /**
+     * Через сколько секунд рекомендуется повторить запрос.
+     */
+    private final long retryAfter;
+
+    /**
+     * Создает экземпляр с информациоей об исключении.
+     *
+     * @param message    сообщение об исключении.
+     * @param retryAfter через сколько секунд рекомендуется повторить запрос.
+     */
+    public ServiceUnavailableException(final String message, final long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Возвращает, через сколько секунд рекомендуется повторить запрос.
+     *
+     * @return через сколько секунд рекомендуется повторить запрос.
+     */
+    public final long getRetryAfter() {
+        return retryAfter;
+    }
+}
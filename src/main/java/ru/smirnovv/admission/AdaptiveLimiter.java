@@ -0,0 +1,121 @@
+package ru.smirnovv.admission;
+
+import static org.springframework.util.Assert.isTrue;
+
+/**
+ * Адаптивный ограничитель количества одновременно обрабатываемых запросов (AIMD).
+ * Пока задержка запросов не превышает порог, предел растет аддитивно: примерно на единицу за каждые limit запросов.
+ * Когда задержка превышает порог, предел уменьшается мультипликативно, но не чаще одного раза за окно задержки:
+ * медленные запросы, начатые до последнего уменьшения, отражают прежний предел и его больше не уменьшают.
+ */
+public class AdaptiveLimiter {
+    /**
+     * Множитель уменьшения предела при превышении порога задержки.
+     */
+    private static final double BACKOFF = 0.9;
+
+    /**
+     * Минимальный предел.
+     */
+    private final int minLimit;
+
+    /**
+     * Максимальный предел.
+     */
+    private final int maxLimit;
+
+    /**
+     * Порог задержки в наносекундах.
+     */
+    private final long latencyThreshold;
+
+    /**
+     * Текущий предел.
+     */
+    private double limit;
+
+    /**
+     * Количество обрабатываемых запросов.
+     */
+    private int inFlight;
+
+    /**
+     * Было ли уменьшение предела.
+     */
+    private boolean decreased;
+
+    /**
+     * Время последнего уменьшения предела в наносекундах.
+     */
+    private long decreasedAt;
+
+    /**
+     * Создает экземпляр с заданными параметрами.
+     *
+     * @param initialLimit     начальный предел.
+     * @param minLimit         минимальный предел.
+     * @param maxLimit         максимальный предел.
+     * @param latencyThreshold порог задержки в наносекундах.
+     */
+    public AdaptiveLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+                           final long latencyThreshold) {
+        isTrue(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "Limits must satisfy 0 < minLimit <= initialLimit <= maxLimit");
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThreshold = latencyThreshold;
+    }
+
+    /**
+     * Пытается занять место для запроса.
+     *
+     * @return true, если запрос может быть обработан.
+     */
+    public final synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+
+        return true;
+    }
+
+    /**
+     * Освобождает место запроса и корректирует предел по его задержке.
+     *
+     * @param start время начала запроса в наносекундах ({@link System#nanoTime()}).
+     * @param end   время окончания запроса в наносекундах ({@link System#nanoTime()}).
+     */
+    public final synchronized void release(final long start, final long end) {
+        inFlight--;
+
+        if (end - start > latencyThreshold) {
+            if (!decreased || start - decreasedAt >= 0) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                decreased = true;
+                decreasedAt = end;
+            }
+        } else if (2 * inFlight >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Возвращает текущий предел.
+     *
+     * @return текущий предел.
+     */
+    public final synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Возвращает количество обрабатываемых запросов.
+     *
+     * @return количество обрабатываемых запросов.
+     */
+    public final synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.smirnovv.admission;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Конфигурация, подключающая ограничение одновременно обрабатываемых запросов к списку покупок.
+ */
+@SuppressWarnings("designForExtension")
+@Configuration
+public class AdmissionControlConfiguration implements WebMvcConfigurer {
+    /**
+     * Перехватчик, ограничивающий количество одновременно обрабатываемых запросов.
+     */
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+
+    /**
+     * Создает экземпляр и перехватчик с параметрами из конфигурации.
+     *
+     * @param readInitialLimit      начальный предел запросов на чтение.
+     * @param readMaxLimit          максимальный предел запросов на чтение.
+     * @param readLatencyThreshold  порог задержки запросов на чтение в миллисекундах.
+     * @param writeInitialLimit     начальный предел запросов на запись.
+     * @param writeMaxLimit         максимальный предел запросов на запись.
+     * @param writeLatencyThreshold порог задержки запросов на запись в миллисекундах.
+     * @param retryAfter            через сколько секунд рекомендуется повторить отклоненный запрос.
+     */
+    @Autowired
+    public AdmissionControlConfiguration(
+            @Value("${shopping-list.admission.read.initial-limit:20}") final int readInitialLimit,
+            @Value("${shopping-list.admission.read.max-limit:200}") final int readMaxLimit,
+            @Value("${shopping-list.admission.read.latency-threshold:100}") final long readLatencyThreshold,
+            @Value("${shopping-list.admission.write.initial-limit:10}") final int writeInitialLimit,
+            @Value("${shopping-list.admission.write.max-limit:50}") final int writeMaxLimit,
+            @Value("${shopping-list.admission.write.latency-threshold:200}") final long writeLatencyThreshold,
+            @Value("${shopping-list.admission.retry-after:1}") final long retryAfter) {
+        this.admissionControlInterceptor = new AdmissionControlInterceptor(
+                readInitialLimit, readMaxLimit, readLatencyThreshold,
+                writeInitialLimit, writeMaxLimit, writeLatencyThreshold,
+                retryAfter);
+    }
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(admissionControlInterceptor).addPathPatterns("/shoppinglist/**");
+    }
+}
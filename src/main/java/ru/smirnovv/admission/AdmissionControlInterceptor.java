@@ -0,0 +1,157 @@
+package ru.smirnovv.admission;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.Assert.isTrue;
+
+/**
+ * Перехватчик, ограничивающий количество одновременно обрабатываемых запросов к каждому маршруту.
+ * Для каждого маршрута создается свой {@link AdaptiveLimiter}; чтение (GET) и запись ограничиваются раздельно.
+ * Запросы сверх предела отклоняются с {@link ServiceOverloadedException}.
+ */
+@SuppressWarnings("designForExtension")
+public class AdmissionControlInterceptor extends HandlerInterceptorAdapter {
+    /**
+     * Атрибут запроса с ограничителем, занятым запросом.
+     */
+    private static final String LIMITER = AdmissionControlInterceptor.class.getName() + ".limiter";
+
+    /**
+     * Атрибут запроса с временем начала обработки.
+     */
+    private static final String START = AdmissionControlInterceptor.class.getName() + ".start";
+
+    /**
+     * Ограничители маршрутов.
+     */
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Начальный предел запросов на чтение.
+     */
+    private final int readInitialLimit;
+
+    /**
+     * Максимальный предел запросов на чтение.
+     */
+    private final int readMaxLimit;
+
+    /**
+     * Порог задержки запросов на чтение в наносекундах.
+     */
+    private final long readLatencyThreshold;
+
+    /**
+     * Начальный предел запросов на запись.
+     */
+    private final int writeInitialLimit;
+
+    /**
+     * Максимальный предел запросов на запись.
+     */
+    private final int writeMaxLimit;
+
+    /**
+     * Порог задержки запросов на запись в наносекундах.
+     */
+    private final long writeLatencyThreshold;
+
+    /**
+     * Через сколько секунд рекомендуется повторить отклоненный запрос.
+     */
+    private final long retryAfter;
+
+    /**
+     * Создает экземпляр с заданными параметрами.
+     *
+     * @param readInitialLimit      начальный предел запросов на чтение.
+     * @param readMaxLimit          максимальный предел запросов на чтение.
+     * @param readLatencyThreshold  порог задержки запросов на чтение в миллисекундах.
+     * @param writeInitialLimit     начальный предел запросов на запись.
+     * @param writeMaxLimit         максимальный предел запросов на запись.
+     * @param writeLatencyThreshold порог задержки запросов на запись в миллисекундах.
+     * @param retryAfter            через сколько секунд рекомендуется повторить отклоненный запрос.
+     */
+    public AdmissionControlInterceptor(final int readInitialLimit, final int readMaxLimit,
+                                       final long readLatencyThreshold,
+                                       final int writeInitialLimit, final int writeMaxLimit,
+                                       final long writeLatencyThreshold,
+                                       final long retryAfter) {
+        isTrue(0 < readInitialLimit && readInitialLimit <= readMaxLimit,
+                "Read limits must satisfy 0 < initialLimit <= maxLimit");
+        isTrue(0 < writeInitialLimit && writeInitialLimit <= writeMaxLimit,
+                "Write limits must satisfy 0 < initialLimit <= maxLimit");
+        isTrue(readLatencyThreshold > 0, "Argument 'readLatencyThreshold' must be positive");
+        isTrue(writeLatencyThreshold > 0, "Argument 'writeLatencyThreshold' must be positive");
+        isTrue(retryAfter > 0, "Argument 'retryAfter' must be positive");
+        this.readInitialLimit = readInitialLimit;
+        this.readMaxLimit = readMaxLimit;
+        this.readLatencyThreshold = TimeUnit.MILLISECONDS.toNanos(readLatencyThreshold);
+        this.writeInitialLimit = writeInitialLimit;
+        this.writeMaxLimit = writeMaxLimit;
+        this.writeLatencyThreshold = TimeUnit.MILLISECONDS.toNanos(writeLatencyThreshold);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                             final Object handler) throws ServiceOverloadedException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+
+        String route = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        AdaptiveLimiter limiter = limiters.computeIfAbsent(route,
+                key -> createLimiter(HttpMethod.GET.matches(request.getMethod())));
+        if (!limiter.tryAcquire()) {
+            throw new ServiceOverloadedException("Service overloaded! Too many concurrent requests to " + route
+                    + ", retry later.", retryAfter);
+        }
+
+        request.setAttribute(LIMITER, limiter);
+        request.setAttribute(START, System.nanoTime());
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response,
+                                final Object handler, final Exception ex) {
+        AdaptiveLimiter limiter = (AdaptiveLimiter) request.getAttribute(LIMITER);
+        if (limiter != null) {
+            limiter.release((Long) request.getAttribute(START), System.nanoTime());
+        }
+    }
+
+    /**
+     * Возвращает текущие пределы маршрутов.
+     *
+     * @return ограничители маршрутов.
+     */
+    public Map<String, AdaptiveLimiter> getLimiters() {
+        return limiters;
+    }
+
+    /**
+     * Создает ограничитель для маршрута.
+     *
+     * @param read является ли маршрут чтением.
+     * @return ограничитель маршрута.
+     */
+    private AdaptiveLimiter createLimiter(final boolean read) {
+        if (read) {
+            return new AdaptiveLimiter(readInitialLimit, 1, readMaxLimit, readLatencyThreshold);
+        }
+
+        return new AdaptiveLimiter(writeInitialLimit, 1, writeMaxLimit, writeLatencyThreshold);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.smirnovv.admission;
+
+import ru.smirnovv.ServiceUnavailableException;
+
+/**
+ * Исключение, указывающее что запрос отклонен из-за перегрузки сервиса.
+ */
+public class ServiceOverloadedException extends ServiceUnavailableException {
+    /**
+     * Создает экземпляр с информациоей об исключении.
+     *
+     * @param message    сообщение об исключении.
+     * @param retryAfter через сколько секунд рекомендуется повторить запрос.
+     */
+    public ServiceOverloadedException(final String message, final long retryAfter) {
+        super(message, retryAfter);
+    }
+}
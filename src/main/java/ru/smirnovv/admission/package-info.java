@@ -0,0 +1,4 @@
+/**
+ * Пакет, содержащий классы, ограничивающие количество одновременно обрабатываемых запросов.
+ */
+package ru.smirnovv.admission;
@@ -0,0 +1,89 @@
+package ru.smirnovv.shoppingList;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Фоновая задача, переносящая завершенные разовые покупки старше срока хранения в архив.
+ * Покупки переносятся порциями, каждая порция в отдельной транзакции,
+ * чтобы таблица покупок оставалась небольшой без долгих блокировок.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+@Profile("!embedded")
+public class ArchivalJob {
+    /**
+     * Репозиторий, управляющий списком покупок.
+     */
+    private final ShoppingListRepository shoppingListRepository;
+
+    /**
+     * Срок хранения завершенных разовых покупок в днях.
+     */
+    private final int retention;
+
+    /**
+     * Размер порции покупок.
+     */
+    private final int batchSize;
+
+    /**
+     * Счетчик перенесенных в архив покупок.
+     */
+    private final Counter archived;
+
+    /**
+     * Шина инвалидации кэшей записей о покупках на всех узлах.
+     */
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param shoppingListRepository репозиторий, управляющий списком покупок.
+     * @param cacheInvalidationBus   шина инвалидации кэшей записей о покупках на всех узлах.
+     * @param meterRegistry          реестр метрик.
+     * @param retention              срок хранения завершенных разовых покупок в днях.
+     * @param batchSize              размер порции покупок.
+     */
+    @Autowired
+    public ArchivalJob(final ShoppingListRepository shoppingListRepository,
+                       final CacheInvalidationBus cacheInvalidationBus,
+                       final MeterRegistry meterRegistry,
+                       @Value("${shopping-list.archival.retention-days:30}") final int retention,
+                       @Value("${shopping-list.archival.batch-size:500}") final int batchSize) {
+        notNull(shoppingListRepository, "Argument 'shoppingListRepository' can not be null");
+        notNull(cacheInvalidationBus, "Argument 'cacheInvalidationBus' can not be null");
+        notNull(meterRegistry, "Argument 'meterRegistry' can not be null");
+        isTrue(retention >= 0, "Argument 'retention' must be not negative");
+        isTrue(batchSize > 0, "Argument 'batchSize' must be positive");
+        this.shoppingListRepository = shoppingListRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.archived = meterRegistry.counter("shoppinglist.archival.purchases");
+    }
+
+    /**
+     * Переносит в архив все завершенные разовые покупки старше срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${shopping-list.archival.interval:3600000}")
+    public void run() {
+        int count;
+        do {
+            count = shoppingListRepository.archiveCompletedPurchases(retention, batchSize);
+            archived.increment(count);
+            if (count > 0) {
+                cacheInvalidationBus.publishAll();
+            }
+        } while (count == batchSize);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.smirnovv.shoppingList;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * Сущность, представляющая завершенные разовые покупки, перенесенные в архив.
+ */
+@Entity
+@Table(name = "purchase_archive")
+public class ArchivedPurchase {
+    /**
+     * Id покупки.
+     */
+    @Id
+    private Long id;
+
+    /**
+     * Название покупки.
+     */
+    private String title;
+
+    /**
+     * Актуальность покупки.
+     */
+    private boolean actual;
+
+    /**
+     * Дата последней покупки.
+     */
+    private Date date;
+
+    /**
+     * Период покупки в днях.
+     */
+    private Long period;
+
+    /**
+     * Дата переноса в архив.
+     */
+    private Date archived;
+
+    /**
+     * Возвращает id покупки.
+     *
+     * @return id покупки.
+     */
+    public final Long getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает дату переноса в архив.
+     *
+     * @return дата переноса в архив.
+     */
+    public final Date getArchived() {
+        if (archived == null) {
+            return null;
+        }
+
+        return new Date(archived.getTime());
+    }
+
+    /**
+     * Возвращает запись о покупке, из которой была создана архивная запись.
+     *
+     * @return запись о покупке.
+     */
+    public final Purchase toPurchase() {
+        Purchase purchase = new Purchase(title);
+        purchase.setId(id);
+        purchase.setActual(actual);
+        if (date != null) {
+            purchase.setDate(date);
+        }
+        purchase.setPeriod(period);
+
+        return purchase;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.smirnovv.shoppingList;
+
+import java.util.Collection;
+
+/**
+ * Шина инвалидации локальных кэшей записей о покупках на всех узлах.
+ */
+public interface CacheInvalidationBus {
+    /**
+     * Сообщает всем узлам, включая текущий, об изменении записей о покупках.
+     * Если есть текущая транзакция, сообщение применяется только после ее фиксации.
+     *
+     * @param ids id измененных записей о покупках.
+     */
+    void publish(Collection<Long> ids);
+
+    /**
+     * Сообщает всем узлам, включая текущий, что могли измениться любые записи о покупках.
+     */
+    void publishAll();
+}
@@ -0,0 +1,252 @@
+package ru.smirnovv.shoppingList;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Автоматический выключатель обращений к хранилищу записей о покупках.
+ * Обращение считается неудачным, если хранилище выбросило временную ошибку или ошибку доступа к ресурсу
+ * (см. {@link #isFailure(RuntimeException)}) или если обращение длилось дольше порога. Остальные ошибки,
+ * например вызванные неверными данными запроса, считаются успешными обращениями и пробрасываются.
+ * После заданного количества неудач подряд выключатель размыкается и отклоняет обращения без ожидания соединения.
+ * По истечении времени размыкания одно пробное обращение пропускается: при успехе выключатель замыкается,
+ * при неудаче снова размыкается.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+public class CircuitBreaker {
+    /**
+     * Состояние выключателя.
+     */
+    private enum State {
+        /**
+         * Обращения пропускаются.
+         */
+        CLOSED,
+
+        /**
+         * Обращения отклоняются.
+         */
+        OPEN,
+
+        /**
+         * Выполняется пробное обращение, остальные отклоняются.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Количество неудач подряд, после которого выключатель размыкается.
+     */
+    private final int failureThreshold;
+
+    /**
+     * Время размыкания в миллисекундах.
+     */
+    private final long openDuration;
+
+    /**
+     * Порог длительности обращения в наносекундах.
+     */
+    private final long slowCallThreshold;
+
+    /**
+     * Номер состояния для метрики.
+     */
+    private final AtomicInteger stateGauge = new AtomicInteger();
+
+    /**
+     * Счетчик успешных обращений.
+     */
+    private final Counter succeeded;
+
+    /**
+     * Счетчик неудачных обращений.
+     */
+    private final Counter failed;
+
+    /**
+     * Счетчик отклоненных обращений.
+     */
+    private final Counter rejected;
+
+    /**
+     * Состояние выключателя.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * Количество неудач подряд.
+     */
+    private int failures;
+
+    /**
+     * Время размыкания в миллисекундах.
+     */
+    private long openedAt;
+
+    /**
+     * Создает экземпляр с заданными параметрами.
+     *
+     * @param meterRegistry     реестр метрик.
+     * @param failureThreshold  количество неудач подряд, после которого выключатель размыкается.
+     * @param openDuration      время размыкания в миллисекундах.
+     * @param slowCallThreshold порог длительности обращения в миллисекундах.
+     */
+    @Autowired
+    public CircuitBreaker(final MeterRegistry meterRegistry,
+                          @Value("${shopping-list.circuit-breaker.failure-threshold:5}") final int failureThreshold,
+                          @Value("${shopping-list.circuit-breaker.open-duration:10000}") final long openDuration,
+                          @Value("${shopping-list.circuit-breaker.slow-call-threshold:2000}")
+                          final long slowCallThreshold) {
+        notNull(meterRegistry, "Argument 'meterRegistry' can not be null");
+        isTrue(failureThreshold > 0, "Argument 'failureThreshold' must be positive");
+        isTrue(openDuration > 0, "Argument 'openDuration' must be positive");
+        isTrue(slowCallThreshold > 0, "Argument 'slowCallThreshold' must be positive");
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.slowCallThreshold = TimeUnit.MILLISECONDS.toNanos(slowCallThreshold);
+        this.succeeded = meterRegistry.counter("shoppinglist.circuitbreaker.calls", "result", "success");
+        this.failed = meterRegistry.counter("shoppinglist.circuitbreaker.calls", "result", "failure");
+        this.rejected = meterRegistry.counter("shoppinglist.circuitbreaker.calls", "result", "rejected");
+        meterRegistry.gauge("shoppinglist.circuitbreaker.state", stateGauge);
+    }
+
+    /**
+     * Выполняет обращение, если выключатель замкнут или обращение является пробным.
+     *
+     * @param call обращение к хранилищу.
+     * @param <T>  тип результата обращения.
+     * @return результат обращения.
+     * @throws CircuitOpenException выбрасывается, если выключатель разомкнут.
+     */
+    public <T> T call(final Supplier<T> call) throws CircuitOpenException {
+        boolean probe = acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+
+            return result;
+        } catch (RuntimeException e) {
+            success = !isFailure(e);
+            throw e;
+        } finally {
+            release(probe, success && System.nanoTime() - start <= slowCallThreshold);
+        }
+    }
+
+    /**
+     * Выполняет обращение без результата, если выключатель замкнут или обращение является пробным.
+     *
+     * @param call обращение к хранилищу.
+     * @throws CircuitOpenException выбрасывается, если выключатель разомкнут.
+     */
+    public void run(final Runnable call) throws CircuitOpenException {
+        call(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Проверяет, говорит ли ошибка о недоступности хранилища, а не о неверном запросе:
+     * временные ошибки, ошибки доступа к ресурсу, восстановимые ошибки и невозможность начать транзакцию.
+     *
+     * @param e ошибка обращения.
+     * @return true, если ошибка считается неудачей обращения.
+     */
+    static boolean isFailure(final RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * Разрешает обращение или отклоняет его.
+     *
+     * @return является ли обращение пробным.
+     * @throws CircuitOpenException выбрасывается, если обращение отклонено.
+     */
+    private synchronized boolean acquire() throws CircuitOpenException {
+        if (state == State.CLOSED) {
+            return false;
+        }
+
+        long remaining = openedAt + openDuration - System.currentTimeMillis();
+        if (state == State.OPEN && remaining <= 0) {
+            setState(State.HALF_OPEN);
+            return true;
+        }
+
+        rejected.increment();
+        throw new CircuitOpenException("Storage is unavailable, the request was rejected.",
+                Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining) + 1));
+    }
+
+    /**
+     * Учитывает результат обращения.
+     *
+     * @param probe   является ли обращение пробным.
+     * @param success успешно ли обращение.
+     */
+    private synchronized void release(final boolean probe, final boolean success) {
+        if (success) {
+            succeeded.increment();
+        } else {
+            failed.increment();
+        }
+
+        if (probe) {
+            if (success) {
+                failures = 0;
+                setState(State.CLOSED);
+            } else {
+                open();
+            }
+        } else if (state == State.CLOSED) {
+            if (success) {
+                failures = 0;
+            } else {
+                failures++;
+                if (failures >= failureThreshold) {
+                    open();
+                }
+            }
+        }
+    }
+
+    /**
+     * Размыкает выключатель.
+     */
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        setState(State.OPEN);
+    }
+
+    /**
+     * Устанавливает состояние выключателя.
+     *
+     * @param newState новое состояние.
+     */
+    private void setState(final State newState) {
+        state = newState;
+        stateGauge.set(newState.ordinal());
+    }
+}
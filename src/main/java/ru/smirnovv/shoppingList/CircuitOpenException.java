@@ -0,0 +1,18 @@
+package ru.smirnovv.shoppingList;
+
+import ru.smirnovv.ServiceUnavailableException;
+
+/**
+ * Исключение, указывающее что обращение к хранилищу отклонено разомкнутым автоматическим выключателем.
+ */
+public class CircuitOpenException extends ServiceUnavailableException {
+    /**
+     * Создает экземпляр с информациоей об исключении.
+     *
+     * @param message    сообщение об исключении.
+     * @param retryAfter через сколько секунд рекомендуется повторить запрос.
+     */
+    public CircuitOpenException(final String message, final long retryAfter) {
+        super(message, retryAfter);
+    }
+}
@@ -0,0 +1,442 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Встроенное хранилище записей о покупках для развертываний без Postgres.
+ * Записи хранятся в журнале {@link PurchaseLog}, в памяти держится только индекс id - смещение в журнале.
+ * При запуске индекс восстанавливается повторением журнала, журнал периодически уплотняется.
+ * Архив не поддерживается: завершенные покупки остаются в журнале.
+ * Каждая операция хранилища атомарна и сама по себе долговечна, но менеджера транзакций в этом профиле нет,
+ * поэтому {@link org.springframework.transaction.annotation.Transactional} на методах сервиса не действует:
+ * чтение и последующая запись в одном методе сервиса не изолированы от параллельных запросов,
+ * а при ошибке уже выполненные записи не откатываются.
+ */
+@SuppressWarnings({"designForExtension", "magicNumber"})
+@Component
+@Profile("embedded")
+public class EmbeddedPurchaseStorage implements PurchaseStorage {
+    /**
+     * Путь к файлу журнала.
+     */
+    private final Path path;
+
+    /**
+     * Сбрасывать ли журнал на диск после каждой записи.
+     */
+    private final boolean sync;
+
+    /**
+     * Индекс id записи о покупке - смещение записи в журнале.
+     */
+    private final NavigableMap<Long, Integer> index = new TreeMap<>();
+
+    /**
+     * Блокировка журнала и индекса.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Шина инвалидации кэшей записей о покупках.
+     */
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    /**
+     * Журнал записей о покупках.
+     */
+    private PurchaseLog log;
+
+    /**
+     * Размер устаревших записей журнала.
+     */
+    private long garbage;
+
+    /**
+     * Последний выданный id записи о покупке.
+     */
+    private long sequence;
+
+    /**
+     * Создает экземпляр и восстанавливает индекс из журнала.
+     *
+     * @param path                 путь к файлу журнала.
+     * @param sync                 сбрасывать ли журнал на диск после каждой записи.
+     * @param cacheInvalidationBus шина инвалидации кэшей записей о покупках.
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    @Autowired
+    public EmbeddedPurchaseStorage(@Value("${shopping-list.embedded.path}") final String path,
+                                   @Value("${shopping-list.embedded.sync:true}") final boolean sync,
+                                   final CacheInvalidationBus cacheInvalidationBus)
+            throws IOException {
+        notNull(cacheInvalidationBus, "Argument 'cacheInvalidationBus' can not be null");
+        this.path = Paths.get(path);
+        this.sync = sync;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        open();
+    }
+
+    @Override
+    public Page<Purchase> findAll(final Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            if (isSortedById(pageable.getSort())) {
+                List<Purchase> content = index.values().stream()
+                        .skip(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .map(log::read)
+                        .collect(Collectors.toList());
+
+                return new PageImpl<>(content, pageable, index.size());
+            }
+
+            return page(purchase -> true, pageable);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Purchase> findAllIncludingArchived(final Pageable pageable) {
+        return findAll(pageable);
+    }
+
+    @Override
+    public Page<Purchase> findAllByActualIsTrue(final Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            return page(Purchase::isActual, pageable);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Purchase> findById(final long id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(index.get(id)).map(log::read);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Purchase> findAllById(final Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Purchase> purchases = new ArrayList<>();
+            for (Long id : ids) {
+                Integer offset = index.get(id);
+                if (offset != null) {
+                    purchases.add(log.read(offset));
+                }
+            }
+
+            return purchases;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Purchase> findArchivedById(final long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Purchase save(final Purchase purchase) {
+        lock.writeLock().lock();
+        try {
+            if (purchase.getId() == null) {
+                purchase.setId(++sequence);
+            }
+            put(purchase);
+            flush();
+
+            return purchase;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void activateAllById(final Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                Integer offset = index.get(id);
+                if (offset != null) {
+                    Purchase purchase = log.read(offset);
+                    purchase.setActual(true);
+                    put(purchase);
+                }
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(final long id) {
+        lock.writeLock().lock();
+        try {
+            if (!index.containsKey(id)) {
+                throw new EmptyResultDataAccessException("No purchase with id " + id + " exists!", 1);
+            }
+            delete(id);
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            for (Long id : new ArrayList<>(index.keySet())) {
+                delete(id);
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Делает актуальными периодические покупки, у которых с последней покупки прошло больше дней, чем период.
+     */
+    @Scheduled(fixedDelayString = "${shopping-list.reactivation.interval:60000}")
+    public void reactivateDuePurchases() {
+        lock.writeLock().lock();
+        try {
+            long today = new Date().getTime();
+            int count = 0;
+            for (Integer offset : new ArrayList<>(index.values())) {
+                Purchase purchase = log.read(offset);
+                if (!purchase.isActual()
+                        && purchase.getPeriod() != 0
+                        && purchase.getDate() != null
+                        && (today - purchase.getDate().getTime()) / (3600 * 24 * 1000) > purchase.getPeriod()) {
+                    purchase.setActual(true);
+                    put(purchase);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                flush();
+                cacheInvalidationBus.publishAll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Уплотняет журнал, если устаревшие записи занимают больше половины его размера.
+     * Актуальные записи копируются в новый открытый журнал, который затем атомарно заменяет файл журнала.
+     * Старый журнал закрывается только после замены, поэтому при ошибке хранилище продолжает работать со старым.
+     * Удаления в новый файл не переносятся, поэтому первым в него пишется последний выданный id.
+     *
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    @Scheduled(fixedDelayString = "${shopping-list.embedded.compaction-interval:60000}")
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (garbage * 2 <= log.size()) {
+                return;
+            }
+
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            Files.deleteIfExists(compacted);
+            PurchaseLog target = new PurchaseLog(compacted);
+            NavigableMap<Long, Integer> targetIndex = new TreeMap<>();
+            try {
+                target.appendSequence(sequence);
+                for (Map.Entry<Long, Integer> entry : index.entrySet()) {
+                    targetIndex.put(entry.getKey(), target.copy(log, entry.getValue()));
+                }
+                target.force();
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                target.close();
+                Files.deleteIfExists(compacted);
+                throw e;
+            }
+
+            PurchaseLog previous = log;
+            log = target;
+            index.clear();
+            index.putAll(targetIndex);
+            garbage = 0;
+            previous.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Закрывает журнал.
+     *
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Открывает журнал и восстанавливает по нему индекс.
+     *
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    private void open() throws IOException {
+        index.clear();
+        garbage = 0;
+        log = new PurchaseLog(path);
+        log.replay(new PurchaseLog.Listener() {
+            @Override
+            public void onPut(final long id, final int offset) {
+                replaced(index.put(id, offset));
+                sequence = Math.max(sequence, id);
+            }
+
+            @Override
+            public void onDelete(final long id) {
+                replaced(index.remove(id));
+                sequence = Math.max(sequence, id);
+            }
+
+            @Override
+            public void onSequence(final long last) {
+                sequence = Math.max(sequence, last);
+            }
+        });
+    }
+
+    /**
+     * Дописывает запись о покупке в журнал и обновляет индекс.
+     *
+     * @param purchase запись о покупке.
+     */
+    private void put(final Purchase purchase) {
+        try {
+            replaced(index.put(purchase.getId(), log.appendPut(purchase)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Дописывает удаление записи о покупке в журнал и обновляет индекс.
+     *
+     * @param id id записи о покупке.
+     */
+    private void delete(final long id) {
+        try {
+            log.appendDelete(id);
+            replaced(index.remove(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Учитывает устаревшую запись журнала.
+     *
+     * @param offset смещение устаревшей записи или null, если ее не было.
+     */
+    private void replaced(final Integer offset) {
+        if (offset != null) {
+            garbage += log.sizeAt(offset);
+        }
+    }
+
+    /**
+     * Сбрасывает журнал на диск, если включена синхронная запись.
+     */
+    private void flush() {
+        if (sync) {
+            log.force();
+        }
+    }
+
+    /**
+     * Возвращает страницу записей о покупках, удовлетворяющих условию.
+     *
+     * @param filter   условие отбора.
+     * @param pageable информация о нумераций страниц.
+     * @return страница записей о покупках.
+     */
+    private Page<Purchase> page(final Predicate<Purchase> filter, final Pageable pageable) {
+        List<Purchase> purchases = index.values().stream()
+                .map(log::read)
+                .filter(filter)
+                .sorted(PurchaseComparators.of(pageable.getSort()))
+                .collect(Collectors.toList());
+
+        int from = (int) Math.min(pageable.getOffset(), purchases.size());
+        int to = Math.min(from + pageable.getPageSize(), purchases.size());
+
+        return new PageImpl<>(new ArrayList<>(purchases.subList(from, to)), pageable, purchases.size());
+    }
+
+    /**
+     * Проверяет, совпадает ли сортировка с порядком индекса.
+     *
+     * @param sort сортировка.
+     * @return true, если сортировка отсутствует или идет по возрастанию id.
+     */
+    private static boolean isSortedById(final Sort sort) {
+        return sort.isUnsorted() || sort.equals(Sort.by("id"));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Хранилище записей о покупках в Postgres.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+@Profile("!embedded")
+public class JpaPurchaseStorage implements PurchaseStorage {
+    /**
+     * Репозиторий, управляющий списком покупок.
+     */
+    private final ShoppingListRepository shoppingListRepository;
+
+    /**
+     * Репозиторий, управляющий архивом завершенных разовых покупок.
+     */
+    private final PurchaseArchiveRepository purchaseArchiveRepository;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param shoppingListRepository    репозиторий, управляющий списком покупок.
+     * @param purchaseArchiveRepository репозиторий, управляющий архивом завершенных разовых покупок.
+     */
+    @Autowired
+    public JpaPurchaseStorage(final ShoppingListRepository shoppingListRepository,
+                              final PurchaseArchiveRepository purchaseArchiveRepository) {
+        notNull(shoppingListRepository, "Argument 'shoppingListRepository' can not be null");
+        notNull(purchaseArchiveRepository, "Argument 'purchaseArchiveRepository' can not be null");
+        this.shoppingListRepository = shoppingListRepository;
+        this.purchaseArchiveRepository = purchaseArchiveRepository;
+    }
+
+    @Override
+    public Page<Purchase> findAll(final Pageable pageable) {
+        return shoppingListRepository.findAll(pageable);
+    }
+
+    /**
+     * Возвращает список покупок, выбирая из базы данных только запрошенные поля.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @param fields   запрошенные поля.
+     * @return список покупок.
+     */
+    @Override
+    public Page<Purchase> findAll(final Pageable pageable, final Set<PurchaseField> fields) {
+        if (fields.containsAll(PurchaseField.ALL)) {
+            return findAll(pageable);
+        }
+
+        return shoppingListRepository.findAll(pageable, false, fields);
+    }
+
+    @Override
+    public Page<Purchase> findAllIncludingArchived(final Pageable pageable) {
+        return shoppingListRepository.findAllIncludingArchived(pageable);
+    }
+
+    @Override
+    public Page<Purchase> findAllByActualIsTrue(final Pageable pageable) {
+        return shoppingListRepository.findAllByActualIsTrue(pageable);
+    }
+
+    /**
+     * Возвращает список актуальных покупок, выбирая из базы данных только запрошенные поля.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @param fields   запрошенные поля.
+     * @return список актуальных покупок.
+     */
+    @Override
+    public Page<Purchase> findAllByActualIsTrue(final Pageable pageable, final Set<PurchaseField> fields) {
+        if (fields.containsAll(PurchaseField.ALL)) {
+            return findAllByActualIsTrue(pageable);
+        }
+
+        return shoppingListRepository.findAll(pageable, true, fields);
+    }
+
+    @Override
+    public Optional<Purchase> findById(final long id) {
+        return shoppingListRepository.findById(id);
+    }
+
+    @Override
+    public List<Purchase> findAllById(final Collection<Long> ids) {
+        return shoppingListRepository.findAllById(ids);
+    }
+
+    @Override
+    public Optional<Purchase> findArchivedById(final long id) {
+        return purchaseArchiveRepository.findById(id).map(ArchivedPurchase::toPurchase);
+    }
+
+    @Override
+    public Purchase save(final Purchase purchase) {
+        return shoppingListRepository.save(purchase);
+    }
+
+    @Override
+    public void activateAllById(final Collection<Long> ids) {
+        shoppingListRepository.activateAllById(ids);
+    }
+
+    @Override
+    public void deleteById(final long id) {
+        shoppingListRepository.deleteById(id);
+    }
+
+    @Override
+    public void deleteAll() {
+        shoppingListRepository.deleteAll();
+    }
+
+    @Override
+    public long count() {
+        return shoppingListRepository.count();
+    }
+}
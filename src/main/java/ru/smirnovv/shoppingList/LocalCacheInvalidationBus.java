@@ -0,0 +1,43 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Шина инвалидации для встроенного хранилища: узел единственный, поэтому инвалидируется только локальный кэш.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+@Profile("embedded")
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+    /**
+     * Локальный кэш записей о покупках.
+     */
+    private final PurchaseCache purchaseCache;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param purchaseCache локальный кэш записей о покупках.
+     */
+    @Autowired
+    public LocalCacheInvalidationBus(final PurchaseCache purchaseCache) {
+        notNull(purchaseCache, "Argument 'purchaseCache' can not be null");
+        this.purchaseCache = purchaseCache;
+    }
+
+    @Override
+    public void publish(final Collection<Long> ids) {
+        purchaseCache.invalidateAfterCommit(ids);
+    }
+
+    @Override
+    public void publishAll() {
+        purchaseCache.invalidateAfterCommit(null);
+    }
+}
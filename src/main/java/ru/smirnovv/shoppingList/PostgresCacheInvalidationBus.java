@@ -0,0 +1,288 @@
+package ru.smirnovv.shoppingList;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Шина инвалидации через Postgres LISTEN/NOTIFY.
+ * Сообщение отправляется NOTIFY в текущей транзакции, поэтому Postgres доставляет его только после фиксации.
+ * Каждый узел держит выделенное соединение с LISTEN вне пула соединений и применяет сообщения к локальному кэшу.
+ * Пока соединение простаивает, оно периодически проверяется, чтобы полуоткрытый сокет не оставлял кэш включенным.
+ * Пока соединение потеряно, кэш выключен; после переподключения кэш очищается полностью,
+ * так как сообщения, отправленные в перерыве, потеряны.
+ * Сообщение - id записей через запятую или {@code *} для всех записей. Версия списка в сообщение не входит:
+ * она локальна для узла, а каждое примененное сообщение само увеличивает версию списка получателя.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+@Profile("!embedded")
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus {
+    /**
+     * Журнал.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresCacheInvalidationBus.class);
+
+    /**
+     * Канал уведомлений.
+     */
+    private static final String CHANNEL = "purchase_invalidation";
+
+    /**
+     * Сообщение об изменении всех записей.
+     */
+    private static final String ALL = "*";
+
+    /**
+     * Максимальное количество id в сообщении; при превышении отправляется сообщение обо всех записях.
+     */
+    private static final int MAX_IDS = 300;
+
+    /**
+     * Название приложения соединения, слушающего уведомления.
+     */
+    static final String LISTENER_NAME = "purchase-invalidation-listener";
+
+    /**
+     * Время ожидания уведомлений в миллисекундах.
+     */
+    private static final int POLL_TIMEOUT = 1000;
+
+    /**
+     * Пауза перед переподключением в миллисекундах.
+     */
+    private static final long RECONNECT_DELAY = 5000;
+
+    /**
+     * Интервал проверки простаивающего соединения в миллисекундах.
+     */
+    private static final long KEEPALIVE_INTERVAL = 10000;
+
+    /**
+     * Время ожидания проверки соединения в секундах.
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    /**
+     * Локальный кэш записей о покупках.
+     */
+    private final PurchaseCache purchaseCache;
+
+    /**
+     * Параметры подключения к базе данных.
+     */
+    private final DataSourceProperties dataSourceProperties;
+
+    /**
+     * Шаблон для отправки уведомлений в текущей транзакции.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Поток, слушающий уведомления.
+     */
+    private Thread listener;
+
+    /**
+     * Работает ли поток, слушающий уведомления.
+     */
+    private volatile boolean running;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param purchaseCache        локальный кэш записей о покупках.
+     * @param dataSourceProperties параметры подключения к базе данных.
+     * @param jdbcTemplate         шаблон для отправки уведомлений в текущей транзакции.
+     */
+    @Autowired
+    public PostgresCacheInvalidationBus(final PurchaseCache purchaseCache,
+                                        final DataSourceProperties dataSourceProperties,
+                                        final JdbcTemplate jdbcTemplate) {
+        notNull(purchaseCache, "Argument 'purchaseCache' can not be null");
+        notNull(dataSourceProperties, "Argument 'dataSourceProperties' can not be null");
+        notNull(jdbcTemplate, "Argument 'jdbcTemplate' can not be null");
+        this.purchaseCache = purchaseCache;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void publish(final Collection<Long> ids) {
+        purchaseCache.invalidateAfterCommit(ids);
+
+        if (ids.size() > MAX_IDS) {
+            sendNotification(ALL);
+        } else {
+            sendNotification(ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+    }
+
+    @Override
+    public void publishAll() {
+        purchaseCache.invalidateAfterCommit(null);
+        sendNotification(ALL);
+    }
+
+    /**
+     * Запускает поток, слушающий уведомления.
+     */
+    @PostConstruct
+    public void start() {
+        purchaseCache.setEnabled(false);
+        running = true;
+        listener = new Thread(this::listen, "purchase-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Останавливает поток, слушающий уведомления.
+     *
+     * @throws InterruptedException выбрасывается, если ожидание остановки прервано.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        listener.join(POLL_TIMEOUT + RECONNECT_DELAY);
+    }
+
+    /**
+     * Отправляет уведомление в текущей транзакции или сразу, если транзакции нет.
+     *
+     * @param payload сообщение.
+     */
+    private void sendNotification(final String payload) {
+        jdbcTemplate.query("select pg_notify(?, ?)", (ResultSetExtractor<Void>) resultSet -> null, CHANNEL, payload);
+    }
+
+    /**
+     * Слушает уведомления, переподключаясь при потере соединения или непредвиденной ошибке.
+     * Когда поток завершается, кэш выключается: без уведомлений его записи нельзя считать актуальными.
+     */
+    private void listen() {
+        try {
+            while (running) {
+                try (Connection connection = connect()) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("LISTEN " + CHANNEL);
+                    }
+                    purchaseCache.invalidateAll();
+                    purchaseCache.setEnabled(true);
+
+                    poll(connection);
+                } catch (SQLException | RuntimeException e) {
+                    purchaseCache.setEnabled(false);
+                    LOGGER.warn("Cache invalidation listener disconnected, local purchase cache disabled", e);
+                    try {
+                        Thread.sleep(RECONNECT_DELAY);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            purchaseCache.setEnabled(false);
+        }
+    }
+
+    /**
+     * Получает уведомления и применяет их к кэшу, пока поток работает,
+     * проверяя соединение, если уведомлений долго нет. Уведомление на канал может отправить любая сессия,
+     * поэтому сообщение, которое не удалось применить, не останавливает поток, а очищает кэш полностью.
+     *
+     * @param connection соединение с LISTEN.
+     * @throws SQLException выбрасывается при потере соединения.
+     */
+    private void poll(final Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long validatedAt = System.nanoTime();
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT);
+            if (notifications != null && notifications.length > 0) {
+                for (PGNotification notification : notifications) {
+                    try {
+                        apply(notification.getParameter());
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Failed to apply cache invalidation '" + notification.getParameter()
+                                + "', local purchase cache cleared", e);
+                        purchaseCache.invalidateAll();
+                    }
+                }
+            } else if (System.nanoTime() - validatedAt >= TimeUnit.MILLISECONDS.toNanos(KEEPALIVE_INTERVAL)) {
+                if (!connection.isValid(VALIDATION_TIMEOUT)) {
+                    throw new SQLException("Cache invalidation listener connection is not valid");
+                }
+                validatedAt = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Открывает выделенное соединение вне пула: оно занято все время работы узла
+     * и не должно уменьшать количество соединений для запросов.
+     *
+     * @return соединение для LISTEN.
+     * @throws SQLException выбрасывается, если подключиться не удалось.
+     */
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        String username = dataSourceProperties.determineUsername();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        String password = dataSourceProperties.determinePassword();
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("ApplicationName", LISTENER_NAME);
+        properties.setProperty("tcpKeepAlive", "true");
+
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    /**
+     * Применяет сообщение к локальному кэшу.
+     *
+     * @param payload сообщение.
+     * @throws NumberFormatException выбрасывается, если сообщение не удалось разобрать.
+     */
+    private void apply(final String payload) {
+        if (ALL.equals(payload)) {
+            purchaseCache.invalidateAll();
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (String id : payload.split(",")) {
+            if (!id.isEmpty()) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        purchaseCache.invalidate(ids);
+    }
+}
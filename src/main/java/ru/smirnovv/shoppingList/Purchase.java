@@ -62,6 +62,22 @@ public class Purchase {
     public Purchase() {
     }
 
+    /**
+     * Возвращает независимую копию записи о покупке.
+     *
+     * @return копия записи о покупке.
+     */
+    final Purchase copy() {
+        Purchase copy = new Purchase();
+        copy.id = id;
+        copy.title = title;
+        copy.actual = actual;
+        copy.date = getDate();
+        copy.period = period;
+
+        return copy;
+    }
+
     /**
      * Возвращает id покупки.
      *
@@ -71,6 +87,15 @@ public class Purchase {
         return id;
     }
 
+    /**
+     * Обновляет id покупки. Используется хранилищами, самостоятельно выдающими id.
+     *
+     * @param id id покупки.
+     */
+    final void setId(final Long id) {
+        this.id = id;
+    }
+
     /**
      * Возвращает название покупки.
      *
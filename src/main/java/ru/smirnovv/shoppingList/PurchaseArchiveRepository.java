@@ -0,0 +1,9 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Репозиторий, управляющий архивом завершенных разовых покупок.
+ */
+public interface PurchaseArchiveRepository extends JpaRepository<ArchivedPurchase, Long> {
+}
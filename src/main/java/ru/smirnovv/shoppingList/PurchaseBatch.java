@@ -0,0 +1,47 @@
+package ru.smirnovv.shoppingList;
+
+import java.util.List;
+
+/**
+ * Результат пакетного запроса записей о покупках по списку id.
+ */
+public class PurchaseBatch {
+    /**
+     * Найденные записи о покупках в порядке запроса.
+     */
+    private final List<PurchaseView> purchases;
+
+    /**
+     * Id, записи о покупках с которыми не найдены.
+     */
+    private final List<Long> missing;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param purchases найденные записи о покупках в порядке запроса.
+     * @param missing   id, записи о покупках с которыми не найдены.
+     */
+    public PurchaseBatch(final List<PurchaseView> purchases, final List<Long> missing) {
+        this.purchases = purchases;
+        this.missing = missing;
+    }
+
+    /**
+     * Возвращает найденные записи о покупках в порядке запроса.
+     *
+     * @return найденные записи о покупках.
+     */
+    public final List<PurchaseView> getPurchases() {
+        return purchases;
+    }
+
+    /**
+     * Возвращает id, записи о покупках с которыми не найдены.
+     *
+     * @return id ненайденных записей о покупках.
+     */
+    public final List<Long> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,154 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.util.Assert.isTrue;
+
+/**
+ * Локальный кэш записей о покупках по id с ограниченным размером (LRU).
+ * Версия списка увеличивается при каждой инвалидации; кэши, зависящие от списка покупок,
+ * могут использовать ее как часть ключа. Запись, прочитанная до инвалидации, в кэш не попадает.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+public class PurchaseCache {
+    /**
+     * Начальная емкость таблицы.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Коэффициент загрузки таблицы.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Записи о покупках по id в порядке обращения.
+     */
+    private final Map<Long, Purchase> purchases;
+
+    /**
+     * Версия списка покупок.
+     */
+    private long listVersion;
+
+    /**
+     * Используется ли кэш.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Создает экземпляр с заданным размером.
+     *
+     * @param maxSize максимальное количество записей в кэше.
+     */
+    public PurchaseCache(@Value("${shopping-list.cache.max-size:10000}") final int maxSize) {
+        isTrue(maxSize > 0, "Argument 'maxSize' must be positive");
+        purchases = new LinkedHashMap<Long, Purchase>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Purchase> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Возвращает копию записи о покупке из кэша, если представлена.
+     *
+     * @param id id записи о покупке.
+     * @return копия записи о покупке.
+     */
+    public synchronized Optional<Purchase> get(final long id) {
+        return Optional.ofNullable(purchases.get(id)).map(Purchase::copy);
+    }
+
+    /**
+     * Сохраняет копию записи о покупке, если с момента ее чтения не было инвалидаций.
+     *
+     * @param purchase    запись о покупке.
+     * @param readVersion версия списка до чтения записи.
+     */
+    public synchronized void put(final Purchase purchase, final long readVersion) {
+        if (enabled && readVersion == listVersion) {
+            purchases.put(purchase.getId(), purchase.copy());
+        }
+    }
+
+    /**
+     * Возвращает версию списка покупок.
+     *
+     * @return версия списка покупок.
+     */
+    public synchronized long getListVersion() {
+        return listVersion;
+    }
+
+    /**
+     * Удаляет записи о покупках из кэша и увеличивает версию списка.
+     *
+     * @param ids id записей о покупках; null - все записи.
+     */
+    public synchronized void invalidate(final Collection<Long> ids) {
+        if (ids == null) {
+            purchases.clear();
+        } else {
+            purchases.keySet().removeAll(ids);
+        }
+        listVersion++;
+    }
+
+    /**
+     * Очищает кэш и увеличивает версию списка.
+     */
+    public synchronized void invalidateAll() {
+        invalidate(null);
+    }
+
+    /**
+     * Возвращает, используется ли кэш.
+     *
+     * @return используется ли кэш.
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Включает или выключает кэш. Выключенный кэш очищается и не принимает новые записи.
+     *
+     * @param enabled используется ли кэш.
+     */
+    public synchronized void setEnabled(final boolean enabled) {
+        if (!enabled) {
+            invalidateAll();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Удаляет записи о покупках из кэша после фиксации текущей транзакции или сразу, если транзакции нет.
+     *
+     * @param ids id записей о покупках; null - все записи.
+     */
+    public void invalidateAfterCommit(final Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(ids);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                invalidate(ids);
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Comparator;
+
+/**
+ * Компараторы записей о покупках для сортировки в памяти.
+ */
+final class PurchaseComparators {
+    /**
+     * Закрытый конструктор вспомогательного класса.
+     */
+    private PurchaseComparators() {
+    }
+
+    /**
+     * Возвращает компаратор записей о покупках для сортировки.
+     * Свойства ограничены {@link PurchaseSort}. Отсутствующие даты идут последними при сортировке по возрастанию,
+     * как в Postgres, но названия сравниваются по кодам символов, а не по правилам сортировки (collation)
+     * базы данных, поэтому названия в разном регистре или на кириллице могут идти в другом порядке, чем в Postgres.
+     *
+     * @param sort сортировка.
+     * @return компаратор записей о покупках.
+     * @throws InvalidParameterException выбрасывается, если сортировка по свойству не поддерживается.
+     */
+    static Comparator<Purchase> of(final Sort sort) throws InvalidParameterException {
+        Comparator<Purchase> result = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Purchase> next;
+            switch (order.getProperty()) {
+                case "id":
+                    next = Comparator.comparing(Purchase::getId);
+                    break;
+                case "title":
+                    next = Comparator.comparing(Purchase::getTitle);
+                    break;
+                case "date":
+                    next = Comparator.comparing(Purchase::getDate, Comparator.nullsLast(Comparator.naturalOrder()));
+                    break;
+                default:
+                    throw new InvalidParameterException("Invalid sort! Unknown property '" + order.getProperty() + "'.");
+            }
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            result = result.thenComparing(next);
+        }
+
+        return result.thenComparing(Purchase::getId);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.smirnovv.shoppingList;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Поле записи о покупке, которое можно запросить параметром fields.
+ */
+public enum PurchaseField {
+    /**
+     * Id покупки.
+     */
+    ID("id"),
+
+    /**
+     * Название покупки.
+     */
+    TITLE("title"),
+
+    /**
+     * Актуальность покупки.
+     */
+    ACTUAL("actual"),
+
+    /**
+     * Дата последней покупки.
+     */
+    DATE("date"),
+
+    /**
+     * Период покупки.
+     */
+    PERIOD("period");
+
+    /**
+     * Все поля записи о покупке.
+     */
+    public static final Set<PurchaseField> ALL = Collections.unmodifiableSet(EnumSet.allOf(PurchaseField.class));
+
+    /**
+     * Название свойства сущности и поля JSON.
+     */
+    private final String property;
+
+    /**
+     * Создает экземпляр с названием свойства.
+     *
+     * @param property название свойства сущности и поля JSON.
+     */
+    PurchaseField(final String property) {
+        this.property = property;
+    }
+
+    /**
+     * Возвращает название свойства сущности и поля JSON.
+     *
+     * @return название свойства.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Разбирает список полей, перечисленных через запятую.
+     *
+     * @param fields список полей или null.
+     * @return запрошенные поля; все поля, если список не задан или пуст.
+     * @throws InvalidParameterException выбрасывается, если поле не существует.
+     */
+    public static Set<PurchaseField> parse(final String fields) throws InvalidParameterException {
+        if (fields == null) {
+            return ALL;
+        }
+
+        Set<PurchaseField> result = EnumSet.noneOf(PurchaseField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            result.add(of(trimmed));
+        }
+        if (result.isEmpty()) {
+            return ALL;
+        }
+
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Возвращает поле по названию свойства.
+     *
+     * @param property название свойства.
+     * @return поле записи о покупке.
+     * @throws InvalidParameterException выбрасывается, если поле не существует.
+     */
+    private static PurchaseField of(final String property) throws InvalidParameterException {
+        for (PurchaseField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+
+        throw new InvalidParameterException("Invalid fields! Unknown field '" + property + "'.");
+    }
+}
@@ -0,0 +1,319 @@
+package ru.smirnovv.shoppingList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал записей о покупках, отображенный в память. Записи только дописываются в конец файла.
+ * Формат записи: длина данных (int), контрольная сумма CRC32 данных (int), данные.
+ * Данные: тип (byte), id (long), для сохранения - актуальность (byte), дата (long), период (long), название.
+ * Запись последовательности хранит вместо id последний выданный id, чтобы он не терялся при уплотнении.
+ * Смещения хранятся в int, поэтому размер журнала ограничен {@link #MAX_CAPACITY} байтами.
+ */
+@SuppressWarnings("magicNumber")
+final class PurchaseLog implements Closeable {
+    /**
+     * Слушатель записей журнала при восстановлении.
+     */
+    interface Listener {
+        /**
+         * Вызывается для сохраненной записи о покупке.
+         *
+         * @param id     id записи о покупке.
+         * @param offset смещение записи в журнале.
+         */
+        void onPut(long id, int offset);
+
+        /**
+         * Вызывается для удаленной записи о покупке.
+         *
+         * @param id id записи о покупке.
+         */
+        void onDelete(long id);
+
+        /**
+         * Вызывается для записи последовательности.
+         *
+         * @param sequence последний выданный id записи о покупке.
+         */
+        void onSequence(long sequence);
+    }
+
+    /**
+     * Тип записи: сохранение покупки.
+     */
+    private static final byte PUT = 1;
+
+    /**
+     * Тип записи: удаление покупки.
+     */
+    private static final byte DELETE = 2;
+
+    /**
+     * Тип записи: последний выданный id.
+     */
+    private static final byte SEQUENCE = 3;
+
+    /**
+     * Размер заголовка записи: длина и контрольная сумма.
+     */
+    private static final int HEADER = 8;
+
+    /**
+     * Начальный размер отображения файла.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    /**
+     * Максимальный размер журнала, адресуемый смещением int.
+     */
+    private static final long MAX_CAPACITY = Integer.MAX_VALUE;
+
+    /**
+     * Значение даты, обозначающее ее отсутствие.
+     */
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Файл журнала.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Отображение файла в память.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Смещение конца последней корректной записи.
+     */
+    private int end;
+
+    /**
+     * Открывает журнал, создавая файл при необходимости.
+     *
+     * @param path путь к файлу журнала.
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    PurchaseLog(final Path path) throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > MAX_CAPACITY) {
+            channel.close();
+            throw new IOException("Purchase log " + path + " is larger than " + MAX_CAPACITY + " bytes.");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, channel.size()));
+    }
+
+    /**
+     * Восстанавливает журнал: перебирает корректные записи с начала файла до первой поврежденной.
+     * Хвост после последней корректной записи (например, недописанный при сбое) затирается.
+     *
+     * @param listener слушатель записей журнала.
+     */
+    void replay(final Listener listener) {
+        end = 0;
+        while (end + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(end);
+            if (length <= 0 || length > buffer.capacity() - end - HEADER
+                    || buffer.getInt(end + 4) != checksum(end + HEADER, length)) {
+                break;
+            }
+
+            long id = buffer.getLong(end + HEADER + 1);
+            byte type = buffer.get(end + HEADER);
+            if (type == PUT) {
+                listener.onPut(id, end);
+            } else if (type == DELETE) {
+                listener.onDelete(id);
+            } else {
+                listener.onSequence(id);
+            }
+            end += HEADER + length;
+        }
+
+        for (int i = end; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * Дописывает в журнал сохранение записи о покупке.
+     *
+     * @param purchase запись о покупке.
+     * @return смещение записи в журнале.
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    int appendPut(final Purchase purchase) throws IOException {
+        byte[] title = purchase.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte actual = 0;
+        if (purchase.isActual()) {
+            actual = 1;
+        }
+        long date = NO_DATE;
+        if (purchase.getDate() != null) {
+            date = purchase.getDate().getTime();
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(1 + 8 + 1 + 8 + 8 + 2 + title.length);
+        data.put(PUT).putLong(purchase.getId());
+        data.put(actual);
+        data.putLong(date);
+        data.putLong(purchase.getPeriod());
+        data.putShort((short) title.length).put(title);
+
+        return append(data.array());
+    }
+
+    /**
+     * Дописывает в журнал удаление записи о покупке.
+     *
+     * @param id id записи о покупке.
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    void appendDelete(final long id) throws IOException {
+        append(ByteBuffer.allocate(1 + 8).put(DELETE).putLong(id).array());
+    }
+
+    /**
+     * Дописывает в журнал последний выданный id.
+     *
+     * @param sequence последний выданный id записи о покупке.
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    void appendSequence(final long sequence) throws IOException {
+        append(ByteBuffer.allocate(1 + 8).put(SEQUENCE).putLong(sequence).array());
+    }
+
+    /**
+     * Копирует запись из другого журнала без декодирования.
+     *
+     * @param source журнал-источник.
+     * @param offset смещение записи в журнале-источнике.
+     * @return смещение записи в этом журнале.
+     * @throws IOException выбрасывается при ошибке ввода-вывода.
+     */
+    int copy(final PurchaseLog source, final int offset) throws IOException {
+        byte[] data = new byte[source.buffer.getInt(offset)];
+        ByteBuffer view = source.buffer.duplicate();
+        view.position(offset + HEADER);
+        view.get(data);
+
+        return append(data);
+    }
+
+    /**
+     * Читает запись о покупке по смещению.
+     *
+     * @param offset смещение записи сохранения в журнале.
+     * @return запись о покупке.
+     */
+    Purchase read(final int offset) {
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset + HEADER + 1);
+
+        long id = data.getLong();
+        boolean actual = data.get() != 0;
+        long date = data.getLong();
+        long period = data.getLong();
+        byte[] title = new byte[data.getShort()];
+        data.get(title);
+
+        Purchase purchase = new Purchase(new String(title, StandardCharsets.UTF_8));
+        purchase.setId(id);
+        purchase.setActual(actual);
+        if (date != NO_DATE) {
+            purchase.setDate(new Date(date));
+        }
+        purchase.setPeriod(period);
+
+        return purchase;
+    }
+
+    /**
+     * Возвращает полный размер записи по смещению.
+     *
+     * @param offset смещение записи в журнале.
+     * @return размер записи вместе с заголовком.
+     */
+    int sizeAt(final int offset) {
+        return HEADER + buffer.getInt(offset);
+    }
+
+    /**
+     * Возвращает размер занятой части журнала.
+     *
+     * @return размер занятой части журнала.
+     */
+    int size() {
+        return end;
+    }
+
+    /**
+     * Сбрасывает изменения журнала на диск.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Дописывает запись в конец журнала, увеличивая отображение при необходимости.
+     *
+     * @param data данные записи.
+     * @return смещение записи в журнале.
+     * @throws IOException выбрасывается при ошибке ввода-вывода или если журнал достиг максимального размера.
+     */
+    private int append(final byte[] data) throws IOException {
+        int offset = end;
+        int size = HEADER + data.length;
+        long required = (long) offset + size;
+        if (required > MAX_CAPACITY) {
+            throw new IOException("Purchase log is full: it can not grow beyond " + MAX_CAPACITY + " bytes.");
+        }
+        if (required > buffer.capacity()) {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.min(MAX_CAPACITY, Math.max(2L * buffer.capacity(), required)));
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + HEADER);
+        view.put(data);
+        buffer.putInt(offset + 4, checksum(offset + HEADER, data.length));
+        buffer.putInt(offset, data.length);
+        end = offset + size;
+
+        return offset;
+    }
+
+    /**
+     * Вычисляет контрольную сумму данных журнала.
+     *
+     * @param offset смещение данных.
+     * @param length длина данных.
+     * @return контрольная сумма CRC32.
+     */
+    private int checksum(final int offset, final int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+
+        return (int) crc.getValue();
+    }
+}
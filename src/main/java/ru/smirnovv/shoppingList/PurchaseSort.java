@@ -0,0 +1,117 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Iterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Поддерживаемая сортировка списков покупок.
+ * Каждой сортировке соответствуют индекс по (свойство, id) на таблице покупок и частичный индекс
+ * по актуальным покупкам, поэтому страница в любом направлении читается упорядоченным сканированием индекса.
+ */
+public enum PurchaseSort {
+    /**
+     * Сортировка по id покупки.
+     */
+    ID("id"),
+
+    /**
+     * Сортировка по названию покупки.
+     */
+    TITLE("title"),
+
+    /**
+     * Сортировка по дате последней покупки.
+     */
+    DATE("date");
+
+    /**
+     * Название свойства сущности.
+     */
+    private final String property;
+
+    /**
+     * Создает экземпляр с названием свойства.
+     *
+     * @param property название свойства сущности.
+     */
+    PurchaseSort(final String property) {
+        this.property = property;
+    }
+
+    /**
+     * Возвращает название свойства сущности.
+     *
+     * @return название свойства.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Проверяет сортировку информации о нумерации страниц и дополняет ее сортировкой по id
+     * в том же направлении, чтобы порядок страниц был однозначным и совпадал с порядком индекса.
+     * Допускается сортировка по одному поддерживаемому свойству, за которым может следовать id в том же направлении.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @return информация о нумераций страниц с поддерживаемой сортировкой; по умолчанию по id.
+     * @throws InvalidParameterException выбрасывается, если сортировка не поддерживается.
+     */
+    public static Pageable parse(final Pageable pageable) throws InvalidParameterException {
+        if (pageable.getSort().isUnsorted()) {
+            return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(ID.property));
+        }
+
+        Iterator<Sort.Order> orders = pageable.getSort().iterator();
+        Sort.Order first = orders.next();
+        PurchaseSort sort = of(first);
+        if (orders.hasNext()) {
+            Sort.Order second = orders.next();
+            if (sort == ID || orders.hasNext() || of(second) != ID || second.getDirection() != first.getDirection()) {
+                throw unsupported();
+            }
+        }
+
+        Sort result = Sort.by(first.getDirection(), sort.property);
+        if (sort != ID) {
+            result = result.and(Sort.by(first.getDirection(), ID.property));
+        }
+
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), result);
+    }
+
+    /**
+     * Возвращает сортировку по порядку сортировки.
+     *
+     * @param order порядок сортировки.
+     * @return поддерживаемая сортировка.
+     * @throws InvalidParameterException выбрасывается, если порядок сортировки не поддерживается.
+     */
+    private static PurchaseSort of(final Sort.Order order) throws InvalidParameterException {
+        if (order.isIgnoreCase() || order.getNullHandling() != Sort.NullHandling.NATIVE) {
+            throw unsupported();
+        }
+        for (PurchaseSort sort : values()) {
+            if (sort.property.equals(order.getProperty())) {
+                return sort;
+            }
+        }
+
+        throw unsupported();
+    }
+
+    /**
+     * Создает исключение о неподдерживаемой сортировке.
+     *
+     * @return исключение о неподдерживаемой сортировке.
+     */
+    private static InvalidParameterException unsupported() {
+        return new InvalidParameterException("Invalid sort! Supported sorts are "
+                + Stream.of(values()).map(PurchaseSort::getProperty).collect(Collectors.joining(", "))
+                + " in either direction.");
+    }
+}
@@ -0,0 +1,122 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Хранилище записей о покупках.
+ * Реализация выбирается профилем: по умолчанию используется Postgres, в профиле embedded - встроенный журнал.
+ */
+public interface PurchaseStorage {
+    /**
+     * Возвращает список покупок.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @return список покупок.
+     */
+    Page<Purchase> findAll(Pageable pageable);
+
+    /**
+     * Возвращает список покупок, в записях которого заполнены как минимум запрошенные поля.
+     * По умолчанию читаются записи целиком.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @param fields   запрошенные поля.
+     * @return список покупок.
+     */
+    default Page<Purchase> findAll(Pageable pageable, Set<PurchaseField> fields) {
+        return findAll(pageable);
+    }
+
+    /**
+     * Возвращает список покупок вместе с перенесенными в архив.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @return список покупок вместе с архивными.
+     */
+    Page<Purchase> findAllIncludingArchived(Pageable pageable);
+
+    /**
+     * Возвращает список актуальных покупок.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @return список актуальных покупок.
+     */
+    Page<Purchase> findAllByActualIsTrue(Pageable pageable);
+
+    /**
+     * Возвращает список актуальных покупок, в записях которого заполнены как минимум запрошенные поля.
+     * По умолчанию читаются записи целиком.
+     *
+     * @param pageable информация о нумераций страниц.
+     * @param fields   запрошенные поля.
+     * @return список актуальных покупок.
+     */
+    default Page<Purchase> findAllByActualIsTrue(Pageable pageable, Set<PurchaseField> fields) {
+        return findAllByActualIsTrue(pageable);
+    }
+
+    /**
+     * Возвращает запись о покупке по id, если представлена.
+     *
+     * @param id id записи о покупке.
+     * @return найденная запись о покупке.
+     */
+    Optional<Purchase> findById(long id);
+
+    /**
+     * Возвращает найденные записи о покупках по списку id одним запросом.
+     *
+     * @param ids список id записей о покупках.
+     * @return найденные записи о покупках в произвольном порядке.
+     */
+    List<Purchase> findAllById(Collection<Long> ids);
+
+    /**
+     * Возвращает перенесенную в архив запись о покупке по id, если представлена.
+     *
+     * @param id id записи о покупке.
+     * @return найденная архивная запись о покупке.
+     */
+    Optional<Purchase> findArchivedById(long id);
+
+    /**
+     * Сохраняет запись о покупке. Новой записи присваивается id.
+     *
+     * @param purchase запись о покупке.
+     * @return сохраненная запись о покупке.
+     */
+    Purchase save(Purchase purchase);
+
+    /**
+     * Делает актуальными записи о покупках по списку id одним обращением к хранилищу.
+     * Отсутствующие id пропускаются.
+     *
+     * @param ids список id записей о покупках.
+     */
+    void activateAllById(Collection<Long> ids);
+
+    /**
+     * Удаляет запись о покупке по id.
+     *
+     * @param id id записи о покупке.
+     */
+    void deleteById(long id);
+
+    /**
+     * Удаляет все записи о покупках.
+     */
+    void deleteAll();
+
+    /**
+     * Возвращает количество записей о покупках.
+     *
+     * @return количество записей о покупках.
+     */
+    long count();
+}
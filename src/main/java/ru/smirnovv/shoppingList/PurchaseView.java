@@ -0,0 +1,82 @@
+package ru.smirnovv.shoppingList;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Представление записи о покупке, в JSON которого попадают только запрошенные поля.
+ */
+@JsonSerialize(using = PurchaseView.Serializer.class)
+public final class PurchaseView {
+    /**
+     * Запись о покупке.
+     */
+    private final Purchase purchase;
+
+    /**
+     * Запрошенные поля.
+     */
+    private final Set<PurchaseField> fields;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param purchase запись о покупке.
+     * @param fields   запрошенные поля.
+     */
+    public PurchaseView(final Purchase purchase, final Set<PurchaseField> fields) {
+        notNull(purchase, "Argument 'purchase' can not be null");
+        notNull(fields, "Argument 'fields' can not be null");
+        this.purchase = purchase;
+        this.fields = fields;
+    }
+
+    /**
+     * Сериализатор, записывающий запрошенные поля без рефлексии.
+     */
+    public static final class Serializer extends StdSerializer<PurchaseView> {
+        /**
+         * Создает экземпляр сериализатора.
+         */
+        public Serializer() {
+            super(PurchaseView.class);
+        }
+
+        @Override
+        public void serialize(final PurchaseView view, final JsonGenerator generator,
+                              final SerializerProvider provider) throws IOException {
+            Purchase purchase = view.purchase;
+            generator.writeStartObject();
+            for (PurchaseField field : view.fields) {
+                generator.writeFieldName(field.getProperty());
+                switch (field) {
+                    case ID:
+                        provider.defaultSerializeValue(purchase.getId(), generator);
+                        break;
+                    case TITLE:
+                        generator.writeString(purchase.getTitle());
+                        break;
+                    case ACTUAL:
+                        generator.writeBoolean(purchase.isActual());
+                        break;
+                    case DATE:
+                        provider.defaultSerializeValue(purchase.getDate(), generator);
+                        break;
+                    case PERIOD:
+                        provider.defaultSerializeValue(purchase.getPeriod(), generator);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown field " + field);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+}
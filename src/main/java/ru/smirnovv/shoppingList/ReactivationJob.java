@@ -0,0 +1,223 @@
+package ru.smirnovv.shoppingList;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Фоновая задача, делающая актуальными периодические покупки, у которых с последней покупки прошло больше дней,
+ * чем период.
+ * При включенном выборе лидера задачу выполняет только узел, держащий advisory-блокировку Postgres.
+ * Блокировка берется на выделенном соединении вне пула и держится, пока живет сессия, поэтому лидер стабилен
+ * между запусками; перед каждым запуском соединение проверяется, и при его потере лидерство отпускается.
+ * Остальные узлы пропускают запуски и сообщают задержку 0, пока лидер жив, и пытаются перехватить блокировку
+ * на каждом запуске. Покупки обрабатываются порциями с FOR UPDATE SKIP LOCKED, поэтому даже при кратковременной
+ * смене лидера или без выбора лидера узлы не обрабатывают одни и те же строки.
+ */
+@SuppressWarnings("designForExtension")
+@Component
+@Profile("!embedded")
+public class ReactivationJob {
+    /**
+     * Журнал.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactivationJob.class);
+
+    /**
+     * Время проверки соединения лидера в секундах.
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    /**
+     * Репозиторий, управляющий списком покупок.
+     */
+    private final ShoppingListRepository shoppingListRepository;
+
+    /**
+     * Параметры подключения к базе данных для выделенного соединения лидера.
+     */
+    private final DataSourceProperties dataSourceProperties;
+
+    /**
+     * Шина инвалидации кэшей записей о покупках на всех узлах.
+     */
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    /**
+     * Размер порции покупок.
+     */
+    private final int chunkSize;
+
+    /**
+     * Выбирать ли лидера через advisory-блокировку.
+     */
+    private final boolean leaderElection;
+
+    /**
+     * Ключ advisory-блокировки лидера.
+     */
+    private final long leaderLock;
+
+    /**
+     * Счетчик покупок, ставших актуальными.
+     */
+    private final Counter reactivated;
+
+    /**
+     * Задержка обработки в секундах на начало последнего запуска.
+     */
+    private final AtomicLong lag = new AtomicLong();
+
+    /**
+     * Выделенное соединение, на котором удерживается блокировка лидера, или null, если узел не лидер.
+     */
+    private Connection leaderConnection;
+
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param shoppingListRepository репозиторий, управляющий списком покупок.
+     * @param dataSourceProperties   параметры подключения к базе данных для выделенного соединения лидера.
+     * @param cacheInvalidationBus   шина инвалидации кэшей записей о покупках на всех узлах.
+     * @param meterRegistry          реестр метрик.
+     * @param chunkSize              размер порции покупок.
+     * @param leaderElection         выбирать ли лидера через advisory-блокировку.
+     * @param leaderLock             ключ advisory-блокировки лидера; узлы одного кластера должны использовать один ключ.
+     */
+    @Autowired
+    public ReactivationJob(final ShoppingListRepository shoppingListRepository,
+                           final DataSourceProperties dataSourceProperties,
+                           final CacheInvalidationBus cacheInvalidationBus,
+                           final MeterRegistry meterRegistry,
+                           @Value("${shopping-list.reactivation.chunk-size:500}") final int chunkSize,
+                           @Value("${shopping-list.reactivation.leader-election:true}") final boolean leaderElection,
+                           @Value("${shopping-list.reactivation.leader-lock:1936224112}") final long leaderLock) {
+        notNull(shoppingListRepository, "Argument 'shoppingListRepository' can not be null");
+        notNull(dataSourceProperties, "Argument 'dataSourceProperties' can not be null");
+        notNull(cacheInvalidationBus, "Argument 'cacheInvalidationBus' can not be null");
+        notNull(meterRegistry, "Argument 'meterRegistry' can not be null");
+        isTrue(chunkSize > 0, "Argument 'chunkSize' must be positive");
+        this.shoppingListRepository = shoppingListRepository;
+        this.dataSourceProperties = dataSourceProperties;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.chunkSize = chunkSize;
+        this.leaderElection = leaderElection;
+        this.leaderLock = leaderLock;
+        this.reactivated = meterRegistry.counter("shoppinglist.reactivation.purchases");
+        meterRegistry.gauge("shoppinglist.reactivation.lag.seconds", lag);
+    }
+
+    /**
+     * Запускает обработку, если этот узел является лидером или выбор лидера выключен.
+     *
+     * @throws SQLException выбрасывается при ошибке получения блокировки.
+     */
+    @Scheduled(fixedDelayString = "${shopping-list.reactivation.interval:60000}")
+    public synchronized void run() throws SQLException {
+        if (leaderElection && !isLeader()) {
+            lag.set(0);
+            return;
+        }
+
+        reactivate();
+    }
+
+    /**
+     * Отпускает лидерство, закрывая выделенное соединение.
+     */
+    @PreDestroy
+    public synchronized void resign() {
+        if (leaderConnection == null) {
+            return;
+        }
+        try {
+            leaderConnection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Leader connection was already lost, the advisory lock is released by the server", e);
+        }
+        leaderConnection = null;
+    }
+
+    /**
+     * Проверяет, что узел держит блокировку лидера, и пытается ее получить, если не держит.
+     *
+     * @return является ли узел лидером.
+     * @throws SQLException выбрасывается при ошибке подключения или получения блокировки.
+     */
+    private boolean isLeader() throws SQLException {
+        if (leaderConnection != null && leaderConnection.isValid(VALIDATION_TIMEOUT)) {
+            return true;
+        }
+        resign();
+
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        try {
+            if (tryLock(connection)) {
+                leaderConnection = connection;
+                return true;
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        connection.close();
+
+        return false;
+    }
+
+    /**
+     * Делает актуальными все просроченные покупки порциями, каждая порция в отдельной транзакции.
+     */
+    private void reactivate() {
+        Double seconds = shoppingListRepository.findReactivationLag();
+        if (seconds == null) {
+            lag.set(0);
+            return;
+        }
+        lag.set(seconds.longValue());
+
+        int count;
+        do {
+            count = shoppingListRepository.reactivateDuePurchases(chunkSize);
+            reactivated.increment(count);
+            if (count > 0) {
+                cacheInvalidationBus.publishAll();
+            }
+        } while (count == chunkSize);
+    }
+
+    /**
+     * Пытается получить advisory-блокировку лидера на уровне сессии соединения.
+     *
+     * @param connection соединение, которое будет владеть блокировкой.
+     * @return получена ли блокировка.
+     * @throws SQLException выбрасывается при ошибке выполнения запроса.
+     */
+    private boolean tryLock(final Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select pg_try_advisory_lock(?)")) {
+            statement.setLong(1, leaderLock);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package ru.smirnovv.shoppingList;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,59 +15,166 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.smirnovv.ErrorType;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.util.Assert.isTrue;
 import static org.springframework.util.Assert.notNull;
 
 /**
  * Rest-контроллер, управляющий списком покупок.
+ * Обращения к сервису проходят через автоматический выключатель. Пока хранилище недоступно,
+ * списки и записи о покупках отдаются из последних успешных ответов с заголовками Warning и Age,
+ * а изменения отклоняются сразу.
  */
 @RestController
 @RequestMapping("/shoppinglist")
 public class ShoppingListController {
+    /**
+     * Предупреждение об устаревшем ответе.
+     */
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     /**
      * Сервис, управляющий списком покупок.
      */
     private ShoppingListService shoppingListService;
 
+    /**
+     * Автоматический выключатель обращений к хранилищу.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Объединение одновременных запросов списка покупок с одинаковыми нумерацией страниц и полями.
+     */
+    private final SingleFlight<List<Object>, Page<Purchase>> shoppingListFlight;
+
+    /**
+     * Объединение одновременных запросов списка актуальных покупок с одинаковыми нумерацией страниц и полями.
+     */
+    private final SingleFlight<List<Object>, Page<Purchase>> actualShoppingListFlight;
+
+    /**
+     * Последние успешные ответы списка покупок.
+     */
+    private final SnapshotCache<List<Object>, Page<PurchaseView>> shoppingListSnapshots;
+
+    /**
+     * Последние успешные ответы списка актуальных покупок.
+     */
+    private final SnapshotCache<List<Object>, Page<PurchaseView>> actualShoppingListSnapshots;
+
+    /**
+     * Последние успешные ответы записей о покупках по id.
+     */
+    private final SnapshotCache<List<Object>, PurchaseView> purchaseSnapshots;
+
+    /**
+     * Максимальное количество id в строке запроса пакетного маршрута GET.
+     */
+    private final int maxQueryIds;
+
     /**
      * Создает экземпляр с внедренными зависимостями.
      *
      * @param shoppingListService сервис, управляющий списком покупок.
+     * @param circuitBreaker      автоматический выключатель обращений к хранилищу.
+     * @param meterRegistry       реестр метрик.
+     * @param snapshotMaxSize     максимальное количество последних успешных ответов каждого маршрута.
+     * @param maxQueryIds         максимальное количество id в строке запроса пакетного маршрута GET.
      */
     @Autowired
-    public ShoppingListController(final ShoppingListService shoppingListService) {
+    public ShoppingListController(final ShoppingListService shoppingListService,
+                                  final CircuitBreaker circuitBreaker,
+                                  final MeterRegistry meterRegistry,
+                                  @Value("${shopping-list.degraded.snapshot-max-size:1000}") final int snapshotMaxSize,
+                                  @Value("${shopping-list.batch.max-query-ids:100}") final int maxQueryIds) {
         notNull(shoppingListService, "Argument 'shoppingListService' can not be null");
+        notNull(circuitBreaker, "Argument 'circuitBreaker' can not be null");
+        notNull(meterRegistry, "Argument 'meterRegistry' can not be null");
+        isTrue(maxQueryIds > 0, "Argument 'maxQueryIds' must be positive");
         this.shoppingListService = shoppingListService;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.shoppingListFlight = new SingleFlight<>(meterRegistry, "shoppingList");
+        this.actualShoppingListFlight = new SingleFlight<>(meterRegistry, "actualShoppingList");
+        this.shoppingListSnapshots = new SnapshotCache<>(snapshotMaxSize);
+        this.actualShoppingListSnapshots = new SnapshotCache<>(snapshotMaxSize);
+        this.purchaseSnapshots = new SnapshotCache<>(snapshotMaxSize);
+        this.maxQueryIds = maxQueryIds;
     }
 
     /**
      * Возвращает список покупок.
+     * Одновременные запросы одной и той же страницы без архива выполняются одним обращением к сервису.
      *
-     * @param pageable информация о нумераций страниц.
+     * @param pageable        информация о нумераций страниц; сортировка ограничена {@link PurchaseSort}.
+     * @param includeArchived включать ли перенесенные в архив покупки.
+     * @param fields          поля записей через запятую; по умолчанию все поля.
      * @return список покупок.
      */
     @GetMapping
-    public final Page<Purchase> shoppingList(@PageableDefault(sort = "id") final Pageable pageable) {
-        return shoppingListService.shoppingList(pageable);
+    public final ResponseEntity<Page<PurchaseView>> shoppingList(
+            @PageableDefault(sort = "id") final Pageable pageable,
+            @RequestParam(defaultValue = "false") final boolean includeArchived,
+            @RequestParam(required = false) final String fields) {
+        Set<PurchaseField> fieldSet = PurchaseField.parse(fields);
+        Pageable sorted = PurchaseSort.parse(pageable);
+
+        return readThrough("shoppingList", shoppingListSnapshots, Arrays.asList(sorted, includeArchived, fieldSet), () -> {
+            Page<Purchase> page;
+            if (includeArchived) {
+                page = circuitBreaker.call(() -> shoppingListService.shoppingList(sorted, true, fieldSet));
+            } else {
+                page = shoppingListFlight.execute(Arrays.asList(sorted, fieldSet),
+                        () -> circuitBreaker.call(() -> shoppingListService.shoppingList(sorted, false, fieldSet)));
+            }
+
+            return page.map(purchase -> new PurchaseView(purchase, fieldSet));
+        });
     }
 
     /**
      * Возвращает список актуальных покупок.
+     * Одновременные запросы одной и той же страницы выполняются одним обращением к сервису.
      *
-     * @param pageable информация о нумераций страниц.
+     * @param pageable информация о нумераций страниц; сортировка ограничена {@link PurchaseSort}.
+     * @param fields   поля записей через запятую; по умолчанию все поля.
      * @return список актуальных покупок.
      */
     @GetMapping("/actual")
-    public final Page<Purchase> actualShoppingList(@PageableDefault(sort = "id") final Pageable pageable) {
-        return shoppingListService.actualShoppingList(pageable);
+    public final ResponseEntity<Page<PurchaseView>> actualShoppingList(
+            @PageableDefault(sort = "id") final Pageable pageable,
+            @RequestParam(required = false) final String fields) {
+        Set<PurchaseField> fieldSet = PurchaseField.parse(fields);
+        Pageable sorted = PurchaseSort.parse(pageable);
+        List<Object> key = Arrays.asList(sorted, fieldSet);
+
+        return readThrough("actualShoppingList", actualShoppingListSnapshots, key,
+                () -> actualShoppingListFlight.execute(key,
+                        () -> circuitBreaker.call(() -> shoppingListService.actualShoppingList(sorted, fieldSet)))
+                        .map(purchase -> new PurchaseView(purchase, fieldSet)));
     }
 
     /**
@@ -75,33 +185,80 @@ public class ShoppingListController {
      */
     @PostMapping(consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
     public final Purchase add(@RequestParam final String title) {
-        return shoppingListService.add(title);
+        return circuitBreaker.call(() -> shoppingListService.add(title));
     }
 
     /**
      * Возвращает запись о покупке по id, если представлена.
      *
-     * @param id id записи о покупке.
+     * @param id              id записи о покупке.
+     * @param includeArchived искать ли запись в архиве, если ее нет в списке покупок.
+     * @param fields          поля записи через запятую; по умолчанию все поля.
      * @return найденная запись о покупке.
      */
     @GetMapping("/{id}")
-    public final Purchase getPurchaseById(@PathVariable final long id) {
-        return shoppingListService.getPurchaseById(id);
+    public final ResponseEntity<PurchaseView> getPurchaseById(
+            @PathVariable final long id,
+            @RequestParam(defaultValue = "false") final boolean includeArchived,
+            @RequestParam(required = false) final String fields) {
+        Set<PurchaseField> fieldSet = PurchaseField.parse(fields);
+
+        return readThrough("getPurchaseById", purchaseSnapshots, Arrays.asList(id, includeArchived, fieldSet),
+                () -> new PurchaseView(
+                        circuitBreaker.call(() -> shoppingListService.getPurchaseById(id, includeArchived)), fieldSet));
+    }
+
+    /**
+     * Возвращает записи о покупках по списку id одним запросом.
+     * Количество id ограничено shopping-list.batch.max-query-ids, чтобы строка запроса не превышала
+     * ограничения прокси и серверов; для более длинных списков используется маршрут POST.
+     *
+     * @param ids    список id записей о покупках через запятую.
+     * @param fields поля записей через запятую; по умолчанию все поля.
+     * @return найденные записи о покупках и id ненайденных.
+     * @throws InvalidParameterException выбрасывается, если id больше допустимого для строки запроса.
+     */
+    @GetMapping("/batch")
+    public final PurchaseBatch getPurchasesByIds(@RequestParam final List<Long> ids,
+                                                 @RequestParam(required = false) final String fields)
+            throws InvalidParameterException {
+        if (new LinkedHashSet<>(ids).size() > maxQueryIds) {
+            throw new InvalidParameterException("Invalid ids! The number of ids in the query string must be at most "
+                    + maxQueryIds + ", use POST for longer lists.");
+        }
+
+        return batch(ids, PurchaseField.parse(fields));
+    }
+
+    /**
+     * Возвращает записи о покупках по длинному списку id, переданному в теле запроса.
+     * Количество id ограничено только shopping-list.batch.max-ids - размером одного запроса к хранилищу.
+     *
+     * @param ids    JSON-массив id записей о покупках.
+     * @param fields поля записей через запятую; по умолчанию все поля.
+     * @return найденные записи о покупках и id ненайденных.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public final PurchaseBatch postPurchasesByIds(@RequestBody final List<Long> ids,
+                                                  @RequestParam(required = false) final String fields) {
+        return batch(ids, PurchaseField.parse(fields));
     }
 
     /**
      * Изменяет актуальность покупки.
+     * Для перенесенной в архив покупки возвращается 404: архивные записи только читаются.
      *
      * @param id id записи о покупке.
      * @return обновленная запись о покупке.
      */
     @PostMapping("/{id}")
     public final Purchase changeRelevance(@PathVariable final long id) {
-        return shoppingListService.changeRelevance(id);
+        return circuitBreaker.call(() -> shoppingListService.changeRelevance(id));
     }
 
     /**
      * Изменяет период покупки.
+     * Для перенесенной в архив покупки возвращается 404: архивные записи только читаются.
      *
      * @param id     id записи о покупке.
      * @param period период покупки.
@@ -109,7 +266,7 @@ public class ShoppingListController {
      */
     @PutMapping("/{id}")
     public final Purchase changePeriod(@PathVariable final long id, @RequestParam final long period) {
-        return shoppingListService.changePeriod(id, period);
+        return circuitBreaker.call(() -> shoppingListService.changePeriod(id, period));
     }
 
     /**
@@ -119,7 +276,65 @@ public class ShoppingListController {
      */
     @DeleteMapping("/{id}")
     public final void remove(@PathVariable final long id) {
-        shoppingListService.remove(id);
+        circuitBreaker.run(() -> shoppingListService.remove(id));
+    }
+
+    /**
+     * Возвращает записи о покупках по списку id, разделяя найденные и ненайденные.
+     *
+     * @param ids    список id записей о покупках.
+     * @param fields запрошенные поля.
+     * @return найденные записи о покупках и id ненайденных.
+     */
+    private PurchaseBatch batch(final List<Long> ids, final Set<PurchaseField> fields) {
+        Map<Long, Purchase> found = circuitBreaker.call(() -> shoppingListService.getPurchasesByIds(ids));
+
+        List<PurchaseView> purchases = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Purchase purchase = found.get(id);
+            if (purchase == null) {
+                missing.add(id);
+            } else {
+                purchases.add(new PurchaseView(purchase, fields));
+            }
+        }
+
+        return new PurchaseBatch(purchases, missing);
+    }
+
+    /**
+     * Выполняет чтение и запоминает ответ. Если хранилище недоступно (выключатель разомкнут или ошибка считается
+     * неудачей обращения по {@link CircuitBreaker#isFailure(RuntimeException)}), возвращает последний успешный ответ
+     * с заголовками Warning и Age; если ответа нет или ошибка вызвана самим запросом, пробрасывает ошибку.
+     *
+     * @param operation название операции для метрик.
+     * @param snapshots последние успешные ответы операции.
+     * @param key       ключ ответа.
+     * @param loader    чтение.
+     * @param <T>       тип ответа.
+     * @return ответ.
+     */
+    private <T> ResponseEntity<T> readThrough(final String operation, final SnapshotCache<List<Object>, T> snapshots,
+                                              final List<Object> key, final Supplier<T> loader) {
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            Optional<SnapshotCache.Snapshot<T>> snapshot = snapshots.get(key);
+            if (!(e instanceof CircuitOpenException || CircuitBreaker.isFailure(e)) || !snapshot.isPresent()) {
+                throw e;
+            }
+            meterRegistry.counter("shoppinglist.degraded.responses", "operation", operation).increment();
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.WARNING, STALE_WARNING)
+                    .header(HttpHeaders.AGE, String.valueOf(snapshot.get().getAge()))
+                    .body(snapshot.get().getValue());
+        }
+        snapshots.put(key, value);
+
+        return ResponseEntity.ok(value);
     }
 
     /**
@@ -3,13 +3,17 @@ package ru.smirnovv.shoppingList;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.Collection;
 
 /**
  * Репозиторий, управляющий списком покупок.
  */
-public interface ShoppingListRepository extends JpaRepository<Purchase, Long> {
+public interface ShoppingListRepository extends JpaRepository<Purchase, Long>, ShoppingListRepositoryCustom {
     /**
      * Возвращает список актуальных покупок.
      *
@@ -19,9 +23,63 @@ public interface ShoppingListRepository extends JpaRepository<Purchase, Long> {
     Page<Purchase> findAllByActualIsTrue(Pageable pageable);
 
     /**
-     * Возвращает список неактуальных покупок.
+     * Делает актуальными записи о покупках по списку id одним запросом.
+     * После запроса контекст персистентности очищается, поэтому ранее загруженные записи
+     * не сохраняются повторно по одной при фиксации транзакции.
      *
-     * @return список неактуальных покупок.
+     * @param ids список id записей о покупках.
+     * @return количество измененных записей.
      */
-    List<Purchase> findAllByActualFalse();
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Purchase p set p.actual = true where p.id in :ids")
+    int activateAllById(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Делает актуальными не более limit периодических покупок, у которых с последней покупки прошло больше дней,
+     * чем период. Покупки выбираются по индексу purchase_reactivation_idx, начиная с самых давних.
+     * Строки, заблокированные другими транзакциями, пропускаются, поэтому вызовы на разных узлах не мешают друг другу.
+     *
+     * @param limit максимальное количество покупок.
+     * @return количество покупок, ставших актуальными.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update purchase set actual = true where id in ("
+            + "select id from purchase"
+            + " where not actual and period > 0"
+            + " and date <= now() - (period + 1) * interval '1 day'"
+            + " order by date limit :limit for update skip locked)", nativeQuery = true)
+    int reactivateDuePurchases(@Param("limit") int limit);
+
+    /**
+     * Возвращает, сколько секунд назад должна была стать актуальной самая давняя из еще не актуальных покупок.
+     *
+     * @return задержка в секундах или null, если таких покупок нет.
+     */
+    @Query(value = "select extract(epoch from now() - min(date + (period + 1) * interval '1 day')) from purchase"
+            + " where not actual and period > 0"
+            + " and date <= now() - (period + 1) * interval '1 day'", nativeQuery = true)
+    Double findReactivationLag();
+
+    /**
+     * Переносит в архив не более limit завершенных разовых покупок, купленных больше retention дней назад.
+     * Покупки выбираются по индексу purchase_archival_idx, начиная с самых давних,
+     * строки, заблокированные другими транзакциями, пропускаются.
+     *
+     * @param retention срок хранения в днях.
+     * @param limit     максимальное количество покупок.
+     * @return количество перенесенных покупок.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "with moved as (delete from purchase where id in ("
+            + "select id from purchase"
+            + " where not actual and period = 0"
+            + " and date < now() - :retention * interval '1 day'"
+            + " order by date limit :limit for update skip locked)"
+            + " returning id, title, actual, date, period)"
+            + " insert into purchase_archive (id, title, actual, date, period, archived)"
+            + " select id, title, actual, date, period, now() from moved", nativeQuery = true)
+    int archiveCompletedPurchases(@Param("retention") int retention, @Param("limit") int limit);
 }
@@ -0,0 +1,31 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Set;
+
+/**
+ * Запросы репозитория списка покупок, которые не выражаются производными запросами Spring Data.
+ */
+public interface ShoppingListRepositoryCustom {
+    /**
+     * Возвращает список покупок, в записях которого заполнены только запрошенные поля.
+     *
+     * @param pageable   информация о нумераций страниц.
+     * @param actualOnly возвращать ли только актуальные покупки.
+     * @param fields     запрошенные поля.
+     * @return список покупок.
+     */
+    Page<Purchase> findAll(Pageable pageable, boolean actualOnly, Set<PurchaseField> fields);
+
+    /**
+     * Возвращает список покупок вместе с перенесенными в архив.
+     * Таблицы объединяются и упорядочиваются в базе данных, поэтому порядок строк совпадает с порядком Postgres.
+     *
+     * @param pageable информация о нумераций страниц с сортировкой по поддерживаемым свойствам.
+     * @return список покупок вместе с архивными.
+     * @throws InvalidParameterException выбрасывается, если сортировка по свойству не поддерживается.
+     */
+    Page<Purchase> findAllIncludingArchived(Pageable pageable) throws InvalidParameterException;
+}
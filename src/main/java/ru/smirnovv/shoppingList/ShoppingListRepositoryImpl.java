@@ -0,0 +1,197 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Реализация запросов репозитория списка покупок, которые не выражаются производными запросами Spring Data.
+ */
+@SuppressWarnings("designForExtension")
+public class ShoppingListRepositoryImpl implements ShoppingListRepositoryCustom {
+    /**
+     * Запрос покупок вместе с архивными без сортировки и нумерации страниц.
+     */
+    private static final String INCLUDING_ARCHIVED = "select id, title, actual, date, period from purchase"
+            + " union all select id, title, actual, date, period from purchase_archive";
+
+    /**
+     * Запрос количества покупок вместе с архивными.
+     */
+    private static final String COUNT_INCLUDING_ARCHIVED = "select (select count(*) from purchase)"
+            + " + (select count(*) from purchase_archive)";
+
+    /**
+     * Менеджер сущностей.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Purchase> findAll(final Pageable pageable, final boolean actualOnly, final Set<PurchaseField> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Purchase> root = query.from(Purchase.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (PurchaseField field : fields) {
+            selections.add(root.get(field.getProperty()));
+        }
+        query.multiselect(selections);
+        if (actualOnly) {
+            query.where(builder.isTrue(root.get("actual")));
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+        List<Purchase> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList()
+                .stream()
+                .map(tuple -> toPurchase(tuple, fields))
+                .collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(actualOnly));
+    }
+
+    /**
+     * Возвращает список покупок вместе с перенесенными в архив.
+     * Обе таблицы имеют индексы по (свойство, id) для каждой поддерживаемой сортировки,
+     * поэтому Postgres сливает упорядоченные сканирования индексов и читает не больше offset + size строк из каждой.
+     *
+     * @param pageable информация о нумераций страниц с сортировкой по поддерживаемым свойствам.
+     * @return список покупок вместе с архивными.
+     * @throws InvalidParameterException выбрасывается, если сортировка по свойству не поддерживается.
+     */
+    @Override
+    public Page<Purchase> findAllIncludingArchived(final Pageable pageable) throws InvalidParameterException {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(INCLUDING_ARCHIVED + orderBy(pageable.getSort())
+                + " limit :limit offset :offset")
+                .setParameter("limit", pageable.getPageSize())
+                .setParameter("offset", pageable.getOffset())
+                .getResultList();
+        List<Purchase> content = rows.stream()
+                .map(ShoppingListRepositoryImpl::toPurchase)
+                .collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () ->
+                ((Number) entityManager.createNativeQuery(COUNT_INCLUDING_ARCHIVED).getSingleResult()).longValue());
+    }
+
+    /**
+     * Возвращает выражение сортировки SQL.
+     * Названия свойств поддерживаемых сортировок совпадают с названиями столбцов, другие свойства не допускаются.
+     *
+     * @param sort сортировка.
+     * @return выражение сортировки или пустая строка, если сортировка не задана.
+     * @throws InvalidParameterException выбрасывается, если сортировка по свойству не поддерживается.
+     */
+    private static String orderBy(final Sort sort) throws InvalidParameterException {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+
+        StringJoiner orderBy = new StringJoiner(", ", " order by ", "");
+        for (Sort.Order order : sort) {
+            if (Stream.of(PurchaseSort.values()).noneMatch(s -> s.getProperty().equals(order.getProperty()))) {
+                throw new InvalidParameterException("Invalid sort property " + order.getProperty() + "!");
+            }
+            orderBy.add(order.getProperty() + " " + order.getDirection().name().toLowerCase());
+        }
+
+        return orderBy.toString();
+    }
+
+    /**
+     * Возвращает количество покупок.
+     *
+     * @param actualOnly считать ли только актуальные покупки.
+     * @return количество покупок.
+     */
+    private long count(final boolean actualOnly) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Purchase> root = query.from(Purchase.class);
+        query.select(builder.count(root));
+        if (actualOnly) {
+            query.where(builder.isTrue(root.get("actual")));
+        }
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Создает запись о покупке из строки запроса всех полей.
+     *
+     * @param row значения id, title, actual, date и period.
+     * @return запись о покупке.
+     */
+    private static Purchase toPurchase(final Object[] row) {
+        Purchase purchase = new Purchase();
+        purchase.setId(((Number) row[0]).longValue());
+        purchase.setTitle((String) row[1]);
+        purchase.setActual((Boolean) row[2]);
+        if (row[3] != null) {
+            purchase.setDate((Date) row[3]);
+        }
+        purchase.setPeriod(((Number) row[4]).longValue());
+
+        return purchase;
+    }
+
+    /**
+     * Создает запись о покупке, заполняя только выбранные поля.
+     *
+     * @param tuple  выбранные значения в порядке полей.
+     * @param fields выбранные поля.
+     * @return запись о покупке.
+     */
+    private static Purchase toPurchase(final Tuple tuple, final Set<PurchaseField> fields) {
+        Purchase purchase = new Purchase();
+        int i = 0;
+        for (PurchaseField field : fields) {
+            Object value = tuple.get(i++);
+            switch (field) {
+                case ID:
+                    purchase.setId((Long) value);
+                    break;
+                case TITLE:
+                    purchase.setTitle((String) value);
+                    break;
+                case ACTUAL:
+                    purchase.setActual((Boolean) value);
+                    break;
+                case DATE:
+                    if (value != null) {
+                        purchase.setDate((Date) value);
+                    }
+                    break;
+                case PERIOD:
+                    purchase.setPeriod((Long) value);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown field " + field);
+            }
+        }
+
+        return purchase;
+    }
+}
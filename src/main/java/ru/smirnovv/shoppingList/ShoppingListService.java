@@ -1,13 +1,23 @@
 package ru.smirnovv.shoppingList;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.Assert.notNull;
 
@@ -18,66 +28,75 @@ import static org.springframework.util.Assert.notNull;
 @Service
 public class ShoppingListService {
     /**
-     * Репозиторий, управляющий списком покупок.
+     * Хранилище записей о покупках.
      */
-    private ShoppingListRepository shoppingListRepository;
+    private PurchaseStorage purchaseStorage;
 
     /**
-     * Создает экземпляр с внедренными зависимостями.
-     *
-     * @param shoppingListRepository репозиторий, управляющий списком покупок.
+     * Максимальное количество id в одном пакетном запросе.
      */
-    @Autowired
-    public ShoppingListService(final ShoppingListRepository shoppingListRepository) {
-        notNull(shoppingListRepository, "Argument 'shoppingListRepository' can not be null");
-        this.shoppingListRepository = shoppingListRepository;
-    }
+    private int maxBatchSize;
 
     /**
-     * Проверка актуальности записей покупок.
-     * Если количество дней с последней покупки превышает период,
-     * то товар становится актуальным для покупки.
+     * Локальный кэш записей о покупках.
      */
-    @Transactional
-    public void checkActual() {
-        List<Purchase> list = shoppingListRepository.findAllByActualFalse();
+    private PurchaseCache purchaseCache;
 
-        Date today = new Date();
+    /**
+     * Шина инвалидации кэшей записей о покупках на всех узлах.
+     */
+    private CacheInvalidationBus cacheInvalidationBus;
 
-        for (Purchase purchase : list) {
-            if (purchase.getPeriod() != 0
-                    && purchase.getDate() != null
-                    && (today.getTime() - purchase.getDate().getTime()) / (3600 * 24 * 1000) > purchase.getPeriod()) {
-                purchase.setActual(true);
-                shoppingListRepository.save(purchase);
-            }
-        }
+    /**
+     * Создает экземпляр с внедренными зависимостями.
+     *
+     * @param purchaseStorage      хранилище записей о покупках.
+     * @param purchaseCache        локальный кэш записей о покупках.
+     * @param cacheInvalidationBus шина инвалидации кэшей записей о покупках на всех узлах.
+     * @param maxBatchSize         максимальное количество id в одном пакетном запросе.
+     */
+    @Autowired
+    public ShoppingListService(final PurchaseStorage purchaseStorage,
+                               final PurchaseCache purchaseCache,
+                               final CacheInvalidationBus cacheInvalidationBus,
+                               @Value("${shopping-list.batch.max-ids:1000}") final int maxBatchSize) {
+        notNull(purchaseStorage, "Argument 'purchaseStorage' can not be null");
+        notNull(purchaseCache, "Argument 'purchaseCache' can not be null");
+        notNull(cacheInvalidationBus, "Argument 'cacheInvalidationBus' can not be null");
+        this.purchaseStorage = purchaseStorage;
+        this.purchaseCache = purchaseCache;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.maxBatchSize = maxBatchSize;
     }
 
     /**
      * Возвращает список покупок.
      *
-     * @param pageable информация о нумераций страниц.
+     * @param pageable        информация о нумераций страниц.
+     * @param includeArchived включать ли перенесенные в архив покупки.
+     * @param fields          запрошенные поля; остальные поля записей могут быть не заполнены.
      * @return список покупок.
      */
     @Transactional
-    public Page<Purchase> shoppingList(final Pageable pageable) {
-        checkActual();
+    public Page<Purchase> shoppingList(final Pageable pageable, final boolean includeArchived,
+                                       final Set<PurchaseField> fields) {
+        if (includeArchived) {
+            return purchaseStorage.findAllIncludingArchived(pageable);
+        }
 
-        return shoppingListRepository.findAll(pageable);
+        return purchaseStorage.findAll(pageable, fields);
     }
 
     /**
      * Возвращает список актуальных покупок.
      *
      * @param pageable информация о нумераций страниц.
+     * @param fields   запрошенные поля; остальные поля записей могут быть не заполнены.
      * @return список актуальных покупок.
      */
     @Transactional
-    public Page<Purchase> actualShoppingList(final Pageable pageable) {
-        checkActual();
-
-        return shoppingListRepository.findAllByActualIsTrue(pageable);
+    public Page<Purchase> actualShoppingList(final Pageable pageable, final Set<PurchaseField> fields) {
+        return purchaseStorage.findAllByActualIsTrue(pageable, fields);
     }
 
     /**
@@ -94,44 +113,104 @@ public class ShoppingListService {
                     "Invalid title! The title must be no longer than 50 characters and not empty");
         }
 
-        return shoppingListRepository.save(new Purchase(title));
+        Purchase purchase = purchaseStorage.save(new Purchase(title));
+        cacheInvalidationBus.publish(Collections.singletonList(purchase.getId()));
+
+        return purchase;
     }
 
     /**
      * Возвращает запись о покупке по id, если представлена.
+     * Записи из списка покупок читаются через локальный кэш.
      *
-     * @param id id записи о покупке.
+     * @param id              id записи о покупке.
+     * @param includeArchived искать ли запись в архиве, если ее нет в списке покупок.
      * @return найденная запись о покупке.
      * @throws PurchaseNotFoundException выбрасывается, если запись о покупке с данным id не найдена.
      */
     @Transactional
-    public Purchase getPurchaseById(final long id) throws PurchaseNotFoundException {
-        Purchase purchase = shoppingListRepository.findById(id).orElseThrow(
+    public Purchase getPurchaseById(final long id, final boolean includeArchived) throws PurchaseNotFoundException {
+        Optional<Purchase> found = purchaseCache.get(id);
+        if (!found.isPresent()) {
+            long version = purchaseCache.getListVersion();
+            found = purchaseStorage.findById(id);
+            found.ifPresent(purchase -> purchaseCache.put(purchase, version));
+        }
+        if (!found.isPresent() && includeArchived) {
+            found = purchaseStorage.findArchivedById(id);
+        }
+        Purchase purchase = found.orElseThrow(
                 () -> new PurchaseNotFoundException("Purchase " + id + " not found."));
 
-        Date today = new Date();
-
-        if (!purchase.isActual()
-                && purchase.getPeriod() != 0
-                && purchase.getDate() != null
-                && (today.getTime() - purchase.getDate().getTime()) / (3600 * 24 * 1000) > purchase.getPeriod()) {
+        if (isDue(purchase, new Date())) {
             purchase.setActual(true);
-            shoppingListRepository.save(purchase);
+            purchaseStorage.save(purchase);
+            cacheInvalidationBus.publish(Collections.singletonList(id));
         }
 
         return purchase;
     }
 
+    /**
+     * Возвращает записи о покупках по списку id одним запросом к хранилищу.
+     * Отсутствующие id не приводят к ошибке, их записей просто нет в результате.
+     * Покупки, которые должны снова стать актуальными, обновляются одним запросом.
+     *
+     * @param ids список id записей о покупках.
+     * @return найденные записи о покупках по id в порядке запроса.
+     * @throws InvalidParameterException выбрасывается, если список id пуст, длиннее допустимого или содержит null.
+     */
+    @Transactional
+    public Map<Long, Purchase> getPurchasesByIds(final Collection<Long> ids) throws InvalidParameterException {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        if (distinct.isEmpty() || distinct.size() > maxBatchSize) {
+            throw new InvalidParameterException(
+                    "Invalid ids! The number of ids must be between 1 and " + maxBatchSize + ".");
+        }
+        if (distinct.contains(null)) {
+            throw new InvalidParameterException("Invalid ids! Ids can not be null.");
+        }
+
+        Map<Long, Purchase> found = new LinkedHashMap<>();
+        for (Purchase purchase : purchaseStorage.findAllById(distinct)) {
+            found.put(purchase.getId(), purchase);
+        }
+
+        Date today = new Date();
+        List<Purchase> due = new ArrayList<>();
+        Map<Long, Purchase> result = new LinkedHashMap<>();
+        for (Long id : distinct) {
+            Purchase purchase = found.get(id);
+            if (purchase == null) {
+                continue;
+            }
+            if (isDue(purchase, today)) {
+                due.add(purchase);
+            }
+            result.put(id, purchase);
+        }
+        if (!due.isEmpty()) {
+            List<Long> dueIds = due.stream().map(Purchase::getId).collect(Collectors.toList());
+            purchaseStorage.activateAllById(dueIds);
+            due.forEach(purchase -> purchase.setActual(true));
+            cacheInvalidationBus.publish(dueIds);
+        }
+
+        return result;
+    }
+
     /**
      * Изменяет актуальность покупки.
+     * Перенесенные в архив покупки не изменяются: для них запись считается не найденной.
      *
      * @param id id записи о покупке.
      * @return обновленная запись о покупке.
-     * @throws PurchaseNotFoundException выбрасывается, если запись о покупке с данным id не найдена.
+     * @throws PurchaseNotFoundException выбрасывается, если запись о покупке с данным id не найдена
+     *                                   в списке покупок, в том числе если она перенесена в архив.
      */
     @Transactional
     public Purchase changeRelevance(final long id) throws PurchaseNotFoundException {
-        Purchase purchase = shoppingListRepository.findById(id).orElseThrow(
+        Purchase purchase = purchaseStorage.findById(id).orElseThrow(
                 () -> new PurchaseNotFoundException("Purchase " + id + " not found."));
 
         if (purchase.isActual()) {
@@ -140,29 +219,36 @@ public class ShoppingListService {
         } else {
             purchase.setActual(true);
         }
+        Purchase saved = purchaseStorage.save(purchase);
+        cacheInvalidationBus.publish(Collections.singletonList(saved.getId()));
 
-        return shoppingListRepository.save(purchase);
+        return saved;
     }
 
     /**
      * Изменяет период покупки.
+     * Перенесенные в архив покупки не изменяются: для них запись считается не найденной.
      *
      * @param id     id записи о покупке.
      * @param period период покупки.
      * @return обновленная запись о покупке.
+     * @throws PurchaseNotFoundException выбрасывается, если запись о покупке с данным id не найдена
+     *                                   в списке покупок, в том числе если она перенесена в архив.
      * @throws InvalidParameterException выбрасывается если период покупки отрицательный.
      */
     @Transactional
     public Purchase changePeriod(final long id, final long period) throws InvalidParameterException {
-        Purchase purchase = shoppingListRepository.findById(id).orElseThrow(
+        Purchase purchase = purchaseStorage.findById(id).orElseThrow(
                 () -> new PurchaseNotFoundException("Purchase " + id + " not found."));
 
         if (period < 0) {
             throw new InvalidParameterException("Invalid period! The period must be not negative.");
         }
         purchase.setPeriod(period);
+        Purchase saved = purchaseStorage.save(purchase);
+        cacheInvalidationBus.publish(Collections.singletonList(saved.getId()));
 
-        return shoppingListRepository.save(purchase);
+        return saved;
     }
 
     /**
@@ -172,6 +258,22 @@ public class ShoppingListService {
      */
     @Transactional
     public void remove(final long id) {
-        shoppingListRepository.deleteById(id);
+        purchaseStorage.deleteById(id);
+        cacheInvalidationBus.publish(Collections.singletonList(id));
+    }
+
+    /**
+     * Проверяет, должна ли неактуальная периодическая покупка снова стать актуальной:
+     * количество дней с последней покупки превышает период.
+     *
+     * @param purchase запись о покупке.
+     * @param today    текущая дата.
+     * @return true, если покупка должна стать актуальной.
+     */
+    private static boolean isDue(final Purchase purchase, final Date today) {
+        return !purchase.isActual()
+                && purchase.getPeriod() != 0
+                && purchase.getDate() != null
+                && (today.getTime() - purchase.getDate().getTime()) / (3600 * 24 * 1000) > purchase.getPeriod();
     }
 }
@@ -0,0 +1,82 @@
+package ru.smirnovv.shoppingList;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединяет одновременные одинаковые вызовы: пока вызов с ключом выполняется,
+ * остальные вызовы с тем же ключом ждут и получают его результат вместо повторного выполнения.
+ * Результат не кэшируется: вызов, начатый после завершения предыдущего, выполняется заново.
+ *
+ * @param <K> тип ключа вызова.
+ * @param <V> тип результата вызова.
+ */
+public class SingleFlight<K, V> {
+    /**
+     * Выполняющиеся вызовы.
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Счетчик выполненных вызовов.
+     */
+    private final Counter executed;
+
+    /**
+     * Счетчик объединенных вызовов.
+     */
+    private final Counter coalesced;
+
+    /**
+     * Создает экземпляр с метриками вызовов.
+     *
+     * @param meterRegistry реестр метрик.
+     * @param operation     название объединяемой операции.
+     */
+    public SingleFlight(final MeterRegistry meterRegistry, final String operation) {
+        executed = meterRegistry.counter("shoppinglist.singleflight.calls", "operation", operation, "result", "executed");
+        coalesced = meterRegistry.counter("shoppinglist.singleflight.calls", "operation", operation, "result", "coalesced");
+    }
+
+    /**
+     * Выполняет вызов или присоединяется к уже выполняющемуся вызову с тем же ключом.
+     *
+     * @param key    ключ вызова.
+     * @param loader вызов.
+     * @return результат вызова.
+     */
+    public final V execute(final K key, final Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        executed.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
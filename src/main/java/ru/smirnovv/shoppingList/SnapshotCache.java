@@ -0,0 +1,113 @@
+package ru.smirnovv.shoppingList;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.Assert.isTrue;
+
+/**
+ * Последние успешно прочитанные ответы с ограниченным количеством (LRU).
+ * Используются вместо хранилища, пока оно недоступно; возраст снимка сообщается клиенту.
+ *
+ * @param <K> тип ключа ответа.
+ * @param <V> тип ответа.
+ */
+public class SnapshotCache<K, V> {
+    /**
+     * Начальная емкость таблицы.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Коэффициент загрузки таблицы.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Снимки по ключу в порядке обращения.
+     */
+    private final Map<K, Snapshot<V>> snapshots;
+
+    /**
+     * Создает экземпляр с заданным размером.
+     *
+     * @param maxSize максимальное количество снимков.
+     */
+    public SnapshotCache(final int maxSize) {
+        isTrue(maxSize > 0, "Argument 'maxSize' must be positive");
+        snapshots = new LinkedHashMap<K, Snapshot<V>>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Snapshot<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Сохраняет снимок ответа.
+     *
+     * @param key   ключ ответа.
+     * @param value ответ.
+     */
+    public final synchronized void put(final K key, final V value) {
+        snapshots.put(key, new Snapshot<>(value, System.currentTimeMillis()));
+    }
+
+    /**
+     * Возвращает последний снимок ответа, если представлен.
+     *
+     * @param key ключ ответа.
+     * @return снимок ответа.
+     */
+    public final synchronized Optional<Snapshot<V>> get(final K key) {
+        return Optional.ofNullable(snapshots.get(key));
+    }
+
+    /**
+     * Снимок ответа.
+     *
+     * @param <V> тип ответа.
+     */
+    public static final class Snapshot<V> {
+        /**
+         * Ответ.
+         */
+        private final V value;
+
+        /**
+         * Время снимка в миллисекундах.
+         */
+        private final long takenAt;
+
+        /**
+         * Создает экземпляр с ответом и временем снимка.
+         *
+         * @param value   ответ.
+         * @param takenAt время снимка в миллисекундах.
+         */
+        private Snapshot(final V value, final long takenAt) {
+            this.value = value;
+            this.takenAt = takenAt;
+        }
+
+        /**
+         * Возвращает ответ.
+         *
+         * @return ответ.
+         */
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Возвращает возраст снимка в секундах.
+         *
+         * @return возраст снимка в секундах.
+         */
+        public long getAge() {
+            return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - takenAt);
+        }
+    }
+}
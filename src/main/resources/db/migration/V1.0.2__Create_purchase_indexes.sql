@@ -0,0 +1,3 @@
+create index purchase_actual_id_idx on purchase (id) where actual;
+
+create index purchase_reactivation_idx on purchase (date) where not actual and period > 0;
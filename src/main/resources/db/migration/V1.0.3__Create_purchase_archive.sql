@@ -0,0 +1,11 @@
+create table purchase_archive
+(
+    id  bigint primary key,
+    title varchar(50) not null,
+    actual boolean not null,
+    date timestamp,
+    period bigint not null,
+    archived timestamp not null
+);
+
+create index purchase_archival_idx on purchase (date) where not actual and period = 0;
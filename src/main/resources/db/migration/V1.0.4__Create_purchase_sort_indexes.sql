@@ -0,0 +1,11 @@
+create index purchase_title_id_idx on purchase (title, id);
+
+create index purchase_date_id_idx on purchase (date, id);
+
+create index purchase_actual_title_id_idx on purchase (title, id) where actual;
+
+create index purchase_actual_date_id_idx on purchase (date, id) where actual;
+
+create index purchase_archive_title_id_idx on purchase_archive (title, id);
+
+create index purchase_archive_date_id_idx on purchase_archive (date, id);
@@ -0,0 +1,78 @@
+package ru.smirnovv.admission;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Тест для {@link AdaptiveLimiter}.
+ */
+public class AdaptiveLimiterTest {
+    private static final long THRESHOLD = 100;
+
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 20, THRESHOLD);
+
+    private void acquire(final int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+
+    @Test
+    public void shouldRejectRequestsOverLimit() {
+        acquire(10);
+
+        assertFalse(limiter.tryAcquire());
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldGrowLimitWhileRequestsAreFastAndLimitIsUsed() {
+        acquire(9);
+        for (int i = 0; i < 100; i++) {
+            acquire(1);
+            limiter.release(0, THRESHOLD);
+        }
+
+        assertTrue(limiter.getLimit() > 10);
+        assertEquals(9, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldNotGrowLimitBeyondMax() {
+        acquire(9);
+        for (int i = 0; i < 10000; i++) {
+            acquire(1);
+            limiter.release(0, THRESHOLD);
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldDecreaseLimitOncePerLatencyWindow() {
+        acquire(10);
+        for (int i = 0; i < 10; i++) {
+            limiter.release(0, 10 * THRESHOLD);
+        }
+
+        assertEquals(9, limiter.getLimit());
+
+        acquire(1);
+        limiter.release(10 * THRESHOLD, 20 * THRESHOLD);
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldNotDecreaseLimitBelowMin() {
+        for (int i = 0; i < 100; i++) {
+            acquire(1);
+            limiter.release(i * 10 * THRESHOLD, (i + 1) * 10 * THRESHOLD);
+        }
+
+        assertEquals(1, limiter.getLimit());
+    }
+}
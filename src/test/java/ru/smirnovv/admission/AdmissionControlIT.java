@@ -0,0 +1,87 @@
+package ru.smirnovv.admission;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.smirnovv.shoppingList.Purchase;
+import ru.smirnovv.shoppingList.ShoppingListService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционный тест для {@link AdmissionControlInterceptor}: запрос сверх предела маршрута отклоняется с 503.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "shopping-list.admission.write.initial-limit=1",
+        "shopping-list.admission.write.max-limit=1",
+        "shopping-list.admission.retry-after=3"})
+@AutoConfigureMockMvc
+public class AdmissionControlIT {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ShoppingListService shoppingListService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static RequestBuilder add() {
+        return post("/shoppinglist")
+                .param("title", "apple")
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE);
+    }
+
+    @Test
+    public void shouldRejectRequestOverLimitWithRetryAfter() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(shoppingListService.add("apple")).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return new Purchase("apple");
+        });
+
+        Future<?> first = executor.submit(() -> mockMvc.perform(add()).andExpect(status().isOk()));
+        assertTrue(entered.await(5, SECONDS));
+
+        mockMvc.perform(add())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(RETRY_AFTER, "3"))
+                .andExpect(jsonPath("$.url").value(is("/shoppinglist")))
+                .andExpect(jsonPath("$.status").value(is(503)));
+
+        release.countDown();
+        first.get(5, SECONDS);
+
+        mockMvc.perform(add()).andExpect(status().isOk());
+    }
+}
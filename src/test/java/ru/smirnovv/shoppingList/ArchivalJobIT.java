@@ -0,0 +1,137 @@
+package ru.smirnovv.shoppingList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционный тест для {@link ArchivalJob} и чтения архивных покупок через {@link ShoppingListController}.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "shopping-list.archival.interval=3600000")
+@AutoConfigureMockMvc
+public class ArchivalJobIT {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ShoppingListRepository shoppingListRepository;
+
+    @Autowired
+    private PurchaseArchiveRepository purchaseArchiveRepository;
+
+    @Autowired
+    private ArchivalJob archivalJob;
+
+    private Purchase archived;
+
+    private Purchase recent;
+
+    private Purchase actual;
+
+    @Before
+    public void createShoppingList() {
+        shoppingListRepository.deleteAll();
+        purchaseArchiveRepository.deleteAll();
+
+        Purchase completed = new Purchase("Purchase A");
+        completed.setActual(false);
+        completed.setPeriod(0L);
+        completed.setDate(new Date(new Date().getTime() - 60L * 3600 * 1000 * 24));
+        archived = shoppingListRepository.save(completed);
+
+        Purchase recentlyCompleted = new Purchase("Purchase B");
+        recentlyCompleted.setActual(false);
+        recentlyCompleted.setPeriod(0L);
+        recent = shoppingListRepository.save(recentlyCompleted);
+
+        actual = shoppingListRepository.save(new Purchase("Purchase C"));
+    }
+
+    @Test
+    public void shouldMoveOnlyOldCompletedOneOffPurchasesToArchive() {
+        archivalJob.run();
+
+        assertFalse(shoppingListRepository.findById(archived.getId()).isPresent());
+        assertTrue(purchaseArchiveRepository.findById(archived.getId()).isPresent());
+        assertTrue(shoppingListRepository.findById(recent.getId()).isPresent());
+        assertTrue(shoppingListRepository.findById(actual.getId()).isPresent());
+        assertEquals(1, purchaseArchiveRepository.count());
+    }
+
+    @Test
+    public void shouldReturnArchivedPurchasesOnlyWhenRequested() throws Exception {
+        mockMvc.perform(get("/shoppinglist/{id}", archived.getId()))
+                .andExpect(status().isOk());
+
+        archivalJob.run();
+
+        mockMvc.perform(get("/shoppinglist"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(is(recent.getId().intValue())))
+                .andExpect(jsonPath("$.content[1].id").value(is(actual.getId().intValue())))
+                .andExpect(jsonPath("$.totalElements").value(is(2)));
+        mockMvc.perform(get("/shoppinglist/{id}", archived.getId()))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/shoppinglist").param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(is(archived.getId().intValue())))
+                .andExpect(jsonPath("$.content[1].id").value(is(recent.getId().intValue())))
+                .andExpect(jsonPath("$.content[2].id").value(is(actual.getId().intValue())))
+                .andExpect(jsonPath("$.totalElements").value(is(3)));
+        mockMvc.perform(get("/shoppinglist/{id}", archived.getId()).param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(is(archived.getId().intValue())))
+                .andExpect(jsonPath("$.title").value(is(archived.getTitle())));
+    }
+
+    @Test
+    public void shouldMergeArchivedPurchasesInDatabaseOrder() throws Exception {
+        archivalJob.run();
+
+        mockMvc.perform(get("/shoppinglist").param("includeArchived", "true")
+                .param("sort", "title,desc").param("page", "1").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(is(recent.getId().intValue())))
+                .andExpect(jsonPath("$.totalElements").value(is(3)));
+        mockMvc.perform(get("/shoppinglist").param("includeArchived", "true")
+                .param("sort", "date").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(is(archived.getId().intValue())));
+    }
+
+    @Test
+    public void shouldNotChangeArchivedPurchases() throws Exception {
+        archivalJob.run();
+
+        mockMvc.perform(post("/shoppinglist/{id}", archived.getId())
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/shoppinglist/{id}", archived.getId()).param("period", "1")
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE))
+                .andExpect(status().isNotFound());
+
+        assertFalse(purchaseArchiveRepository.findById(archived.getId()).get().toPurchase().isActual());
+    }
+}
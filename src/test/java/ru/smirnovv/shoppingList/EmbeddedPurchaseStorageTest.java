@@ -0,0 +1,177 @@
+package ru.smirnovv.shoppingList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Тест для {@link EmbeddedPurchaseStorage}, проверяющий восстановление журнала после перезапуска, сбоя и уплотнения.
+ */
+public class EmbeddedPurchaseStorageTest {
+    private static final int HEADER = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path() {
+        return folder.getRoot().toPath().resolve("purchases.log");
+    }
+
+    private EmbeddedPurchaseStorage open() throws IOException {
+        return new EmbeddedPurchaseStorage(path().toString(), true,
+                new LocalCacheInvalidationBus(new PurchaseCache(10)));
+    }
+
+    /**
+     * Возвращает смещение конца последней записи журнала, перебирая записи по их длинам.
+     */
+    private int end() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path()));
+        int end = 0;
+        while (end + HEADER <= buffer.capacity() && buffer.getInt(end) > 0) {
+            end += HEADER + buffer.getInt(end);
+        }
+
+        return end;
+    }
+
+    @Test
+    public void shouldNotReuseIdOfDeletedPurchaseAfterRestart() throws IOException {
+        EmbeddedPurchaseStorage storage = open();
+        storage.save(new Purchase("a"));
+        Purchase deleted = storage.save(new Purchase("Purchase with a rather long title"));
+        storage.deleteById(deleted.getId());
+        storage.close();
+
+        storage = open();
+        assertEquals(deleted.getId() + 1, (long) storage.save(new Purchase("b")).getId());
+        storage.close();
+    }
+
+    @Test
+    public void shouldNotReuseIdOfDeletedPurchaseAfterCompaction() throws IOException {
+        EmbeddedPurchaseStorage storage = open();
+        storage.save(new Purchase("a"));
+        Purchase deleted = storage.save(new Purchase("Purchase with a rather long title"));
+        storage.deleteById(deleted.getId());
+        storage.compact();
+        storage.close();
+
+        storage = open();
+        assertFalse(storage.findById(deleted.getId()).isPresent());
+        assertEquals(deleted.getId() + 1, (long) storage.save(new Purchase("b")).getId());
+        storage.close();
+    }
+
+    @Test
+    public void shouldKeepUpdatesAndDeletesAfterRestart() throws IOException {
+        EmbeddedPurchaseStorage storage = open();
+        Purchase updated = storage.save(new Purchase("a"));
+        Purchase deleted = storage.save(new Purchase("b"));
+        updated.setTitle("c");
+        updated.setActual(false);
+        updated.setPeriod(7L);
+        storage.save(updated);
+        storage.deleteById(deleted.getId());
+        storage.close();
+
+        storage = open();
+        Purchase reopened = storage.findById(updated.getId()).get();
+        assertEquals("c", reopened.getTitle());
+        assertFalse(reopened.isActual());
+        assertEquals(7L, (long) reopened.getPeriod());
+        assertEquals(updated.getDate(), reopened.getDate());
+        assertFalse(storage.findById(deleted.getId()).isPresent());
+        assertEquals(1, storage.count());
+        storage.close();
+    }
+
+    @Test
+    public void shouldDropCorruptTailRecordOnReplay() throws IOException {
+        EmbeddedPurchaseStorage storage = open();
+        Purchase kept = storage.save(new Purchase("a"));
+        storage.close();
+        int end = end();
+
+        storage = open();
+        Purchase lost = storage.save(new Purchase("b"));
+        storage.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(path().toFile(), "rw")) {
+            file.seek(end + HEADER + 1);
+            int value = file.read();
+            file.seek(end + HEADER + 1);
+            file.write(value ^ 0xFF);
+        }
+
+        storage = open();
+        assertEquals("a", storage.findById(kept.getId()).get().getTitle());
+        assertFalse(storage.findById(lost.getId()).isPresent());
+        assertEquals(1, storage.count());
+        storage.close();
+    }
+
+    @Test
+    public void shouldDropTornTailRecordOnReplay() throws IOException {
+        EmbeddedPurchaseStorage storage = open();
+        Purchase kept = storage.save(new Purchase("a"));
+        storage.close();
+        int end = end();
+
+        storage = open();
+        Purchase lost = storage.save(new Purchase("Purchase with a rather long title"));
+        storage.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(path().toFile(), "rw")) {
+            file.setLength(end + HEADER + 4);
+        }
+
+        storage = open();
+        assertEquals("a", storage.findById(kept.getId()).get().getTitle());
+        assertFalse(storage.findById(lost.getId()).isPresent());
+        Purchase next = storage.save(new Purchase("c"));
+        storage.close();
+
+        storage = open();
+        assertEquals("c", storage.findById(next.getId()).get().getTitle());
+        assertEquals(2, storage.count());
+        storage.close();
+    }
+
+    @Test
+    public void shouldKeepOnlyLiveRecordsAfterCompaction() throws IOException {
+        EmbeddedPurchaseStorage storage = open();
+        Purchase kept = storage.save(new Purchase("a"));
+        Purchase deleted = storage.save(new Purchase("b"));
+        for (int i = 0; i < 10; i++) {
+            kept.setTitle("a" + i);
+            storage.save(kept);
+        }
+        storage.deleteById(deleted.getId());
+        int before = end();
+
+        storage.compact();
+        assertTrue(end() < before);
+        assertEquals("a9", storage.findById(kept.getId()).get().getTitle());
+        Purchase added = storage.save(new Purchase("c"));
+        assertEquals(deleted.getId() + 1, (long) added.getId());
+        storage.close();
+
+        storage = open();
+        assertEquals("a9", storage.findById(kept.getId()).get().getTitle());
+        assertEquals("c", storage.findById(added.getId()).get().getTitle());
+        assertFalse(storage.findById(deleted.getId()).isPresent());
+        assertEquals(2, storage.count());
+        storage.close();
+    }
+}
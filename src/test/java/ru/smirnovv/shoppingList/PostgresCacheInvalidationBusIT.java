@@ -0,0 +1,107 @@
+package ru.smirnovv.shoppingList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Интеграционный тест для {@link PostgresCacheInvalidationBus}.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class PostgresCacheInvalidationBusIT {
+    private static final long TIMEOUT = 20000;
+
+    @Autowired
+    private PurchaseCache purchaseCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void awaitListener() throws Exception {
+        await(purchaseCache::isEnabled);
+        purchaseCache.invalidateAll();
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition was not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private Purchase cached(final long id) {
+        Purchase purchase = new Purchase("Purchase " + id);
+        purchase.setId(id);
+        purchaseCache.put(purchase, purchaseCache.getListVersion());
+
+        return purchase;
+    }
+
+    @Test
+    public void shouldEvictPurchasesNotifiedByAnotherConnection() throws Exception {
+        cached(1L);
+        cached(2L);
+        assertTrue(purchaseCache.get(1L).isPresent());
+
+        jdbcTemplate.query("select pg_notify('purchase_invalidation', '1')", resultSet -> null);
+
+        await(() -> !purchaseCache.get(1L).isPresent());
+        assertTrue(purchaseCache.get(2L).isPresent());
+
+        jdbcTemplate.query("select pg_notify('purchase_invalidation', '*')", resultSet -> null);
+
+        await(() -> !purchaseCache.get(2L).isPresent());
+    }
+
+    @Test
+    public void shouldClearCacheAndKeepListeningWhenPayloadIsMalformed() throws Exception {
+        cached(1L);
+
+        jdbcTemplate.query("select pg_notify('purchase_invalidation', 'x,2')", resultSet -> null);
+
+        await(() -> !purchaseCache.get(1L).isPresent());
+        assertTrue(purchaseCache.isEnabled());
+
+        cached(3L);
+        cached(4L);
+        jdbcTemplate.query("select pg_notify('purchase_invalidation', '3')", resultSet -> null);
+
+        await(() -> !purchaseCache.get(3L).isPresent());
+        assertTrue(purchaseCache.get(4L).isPresent());
+    }
+
+    @Test
+    public void shouldDisableCacheWhileListenerIsDownAndFlushOnReconnect() throws Exception {
+        cached(1L);
+
+        jdbcTemplate.query("select pg_terminate_backend(pid) from pg_stat_activity where application_name = ?",
+                resultSet -> null, PostgresCacheInvalidationBus.LISTENER_NAME);
+
+        await(() -> !purchaseCache.isEnabled());
+        assertFalse(purchaseCache.get(1L).isPresent());
+        cached(2L);
+        assertFalse(purchaseCache.get(2L).isPresent());
+        long version = purchaseCache.getListVersion();
+
+        await(purchaseCache::isEnabled);
+        assertThat(purchaseCache.getListVersion(), greaterThan(version));
+        cached(3L);
+        assertTrue(purchaseCache.get(3L).isPresent());
+    }
+}
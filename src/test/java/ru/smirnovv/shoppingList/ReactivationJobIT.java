@@ -0,0 +1,160 @@
+package ru.smirnovv.shoppingList;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Интеграционный тест для {@link ReactivationJob}: выбор лидера, обработка порциями и метрики.
+ * Задачи тестовых контекстов работают без выбора лидера (application-test.yml),
+ * а задачи теста используют собственный ключ блокировки, поэтому результат не зависит от других тестов.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReactivationJobIT {
+    @Autowired
+    private ShoppingListRepository shoppingListRepository;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    private final List<ReactivationJob> jobs = new ArrayList<>();
+
+    private final long leaderLock = ThreadLocalRandom.current().nextLong();
+
+    @Before
+    public void deleteShoppingList() {
+        shoppingListRepository.deleteAll();
+    }
+
+    @After
+    public void resignJobs() {
+        jobs.forEach(ReactivationJob::resign);
+    }
+
+    private ReactivationJob job(final MeterRegistry meterRegistry, final int chunkSize, final boolean leaderElection) {
+        ReactivationJob job = new ReactivationJob(shoppingListRepository, dataSourceProperties, cacheInvalidationBus,
+                meterRegistry, chunkSize, leaderElection, leaderLock);
+        jobs.add(job);
+
+        return job;
+    }
+
+    private Purchase duePurchase() {
+        Purchase purchase = new Purchase("Purchase");
+        purchase.setActual(false);
+        purchase.setPeriod(1L);
+        purchase.setDate(new Date(new Date().getTime() - 30L * 3600 * 1000 * 24));
+
+        return shoppingListRepository.save(purchase);
+    }
+
+    private boolean isActual(final Purchase purchase) {
+        return shoppingListRepository.findById(purchase.getId()).get().isActual();
+    }
+
+    private static double reactivated(final MeterRegistry meterRegistry) {
+        return meterRegistry.get("shoppinglist.reactivation.purchases").counter().count();
+    }
+
+    private static double lag(final MeterRegistry meterRegistry) {
+        return meterRegistry.get("shoppinglist.reactivation.lag.seconds").gauge().value();
+    }
+
+    @Test
+    public void shouldReactivateAllDuePurchasesInChunks() throws Exception {
+        List<Purchase> purchases = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            purchases.add(duePurchase());
+        }
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        job(meterRegistry, 2, false).run();
+
+        for (Purchase purchase : purchases) {
+            assertTrue(isActual(purchase));
+        }
+        assertEquals(5, reactivated(meterRegistry), 0);
+        assertThat(lag(meterRegistry), greaterThan(0.0));
+    }
+
+    @Test
+    public void shouldSkipRowsLockedByOtherTransactions() throws Exception {
+        Purchase locked = duePurchase();
+        Purchase free = duePurchase();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "select id from purchase where id = ? for update")) {
+                statement.setLong(1, locked.getId());
+                statement.executeQuery().close();
+            }
+
+            job(meterRegistry, 1, false).run();
+            connection.rollback();
+        }
+
+        assertFalse(isActual(locked));
+        assertTrue(isActual(free));
+        assertEquals(1, reactivated(meterRegistry), 0);
+    }
+
+    @Test
+    public void shouldRunOnlyOnLeaderUntilItResigns() throws Exception {
+        MeterRegistry leaderRegistry = new SimpleMeterRegistry();
+        MeterRegistry followerRegistry = new SimpleMeterRegistry();
+        ReactivationJob leader = job(leaderRegistry, 500, true);
+        ReactivationJob follower = job(followerRegistry, 500, true);
+
+        Purchase first = duePurchase();
+        leader.run();
+        assertTrue(isActual(first));
+
+        Purchase second = duePurchase();
+        follower.run();
+        assertFalse(isActual(second));
+        assertEquals(0, reactivated(followerRegistry), 0);
+        assertEquals(0, lag(followerRegistry), 0);
+
+        leader.run();
+        assertTrue(isActual(second));
+        assertEquals(2, reactivated(leaderRegistry), 0);
+
+        leader.resign();
+        Purchase third = duePurchase();
+        follower.run();
+        assertTrue(isActual(third));
+        assertEquals(1, reactivated(followerRegistry), 0);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.smirnovv.shoppingList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.http.HttpHeaders.AGE;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpHeaders.WARNING;
+import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционный тест автоматического выключателя {@link ShoppingListController},
+ * который размыкается неудачными и медленными обращениями к хранилищу.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "shopping-list.circuit-breaker.failure-threshold=2",
+        "shopping-list.circuit-breaker.slow-call-threshold=1000",
+        "shopping-list.circuit-breaker.open-duration=60000"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ShoppingListCircuitBreakerIT {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private PurchaseStorage purchaseStorage;
+
+    private Purchase purchase;
+
+    @Before
+    public void createShoppingList() {
+        purchaseStorage.deleteAll();
+        purchase = purchaseStorage.save(new Purchase("Purchase A"));
+        clearInvocations(purchaseStorage);
+    }
+
+    private void assertOpen() throws Exception {
+        mockMvc.perform(post("/shoppinglist")
+                .param("title", "apple")
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(RETRY_AFTER))
+                .andExpect(jsonPath("$.status").value(is(503)));
+    }
+
+    @Test
+    public void shouldOpenWhenStorageFails() throws Exception {
+        mockMvc.perform(get("/shoppinglist/actual"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(WARNING));
+
+        doThrow(new DataAccessResourceFailureException("Connection refused"))
+                .when(purchaseStorage).findAllByActualIsTrue(any(Pageable.class), anySet());
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/shoppinglist/actual"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(WARNING, "110 - \"Response is Stale\""))
+                    .andExpect(header().exists(AGE))
+                    .andExpect(jsonPath("$.content[0].id").value(is(purchase.getId().intValue())));
+        }
+        verify(purchaseStorage, times(3)).findAllByActualIsTrue(any(Pageable.class), anySet());
+
+        assertOpen();
+        verify(purchaseStorage, never()).save(any(Purchase.class));
+    }
+
+    @Test
+    public void shouldOpenWhenStorageStalls() throws Exception {
+        mockMvc.perform(get("/shoppinglist"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(WARNING));
+
+        doAnswer(invocation -> {
+            Thread.sleep(1500);
+            return invocation.callRealMethod();
+        }).when(purchaseStorage).findAll(any(Pageable.class), anySet());
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/shoppinglist"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(WARNING));
+        }
+
+        mockMvc.perform(get("/shoppinglist"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(WARNING, "110 - \"Response is Stale\""))
+                .andExpect(jsonPath("$.content[0].id").value(is(purchase.getId().intValue())));
+        verify(purchaseStorage, times(3)).findAll(any(Pageable.class), anySet());
+
+        assertOpen();
+    }
+
+    @Test
+    public void shouldStayClosedWhenRequestsFailBecauseOfClientInput() throws Exception {
+        long missingId = purchase.getId() + 1000;
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(delete("/shoppinglist/{id}", missingId))
+                    .andExpect(header().doesNotExist(RETRY_AFTER));
+        }
+
+        mockMvc.perform(post("/shoppinglist")
+                .param("title", "apple")
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/shoppinglist"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(WARNING))
+                .andExpect(jsonPath("$.totalElements").value(is(2)));
+    }
+}
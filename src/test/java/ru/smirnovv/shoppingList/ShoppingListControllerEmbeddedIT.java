@@ -0,0 +1,12 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Интеграционный тест для {@link ShoppingListController} со встроенным хранилищем {@link EmbeddedPurchaseStorage}.
+ */
+@ActiveProfiles("embedded")
+@TestPropertySource(properties = "shopping-list.embedded.path=target/shopping-list-it.log")
+public class ShoppingListControllerEmbeddedIT extends ShoppingListControllerIT {
+}
@@ -11,6 +11,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
@@ -37,18 +40,18 @@ public class ShoppingListControllerIT {
     private MockMvc mockMvc;
 
     @Autowired
-    private ShoppingListRepository shoppingListRepository;
+    private PurchaseStorage purchaseStorage;
 
     @Before
     public void deleteShoppingList() {
-        shoppingListRepository.deleteAll();
+        purchaseStorage.deleteAll();
     }
 
     @Test
     public void shouldReturnShoppingList() throws Exception {
-        Purchase purchaseA = shoppingListRepository.save(new Purchase("Purchase A"));
-        Purchase purchaseB = shoppingListRepository.save(new Purchase("Purchase B"));
-        Purchase purchaseC = shoppingListRepository.save(new Purchase("Purchase C"));
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+        Purchase purchaseB = purchaseStorage.save(new Purchase("Purchase B"));
+        Purchase purchaseC = purchaseStorage.save(new Purchase("Purchase C"));
 
         mockMvc.perform(get("/shoppinglist"))
                 .andExpect(status().isOk())
@@ -65,9 +68,9 @@ public class ShoppingListControllerIT {
 
     @Test
     public void shouldReturnActualShoppingList() throws Exception {
-        Purchase purchaseA = shoppingListRepository.save(new Purchase("Purchase A"));
-        Purchase purchaseB = shoppingListRepository.save(new Purchase("Purchase B"));
-        Purchase purchaseC = shoppingListRepository.save(new Purchase("Purchase C"));
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+        Purchase purchaseB = purchaseStorage.save(new Purchase("Purchase B"));
+        Purchase purchaseC = purchaseStorage.save(new Purchase("Purchase C"));
 
         mockMvc.perform(post("/shoppinglist/{id}", purchaseB.getId())
                 .contentType(APPLICATION_FORM_URLENCODED_VALUE))
@@ -84,6 +87,58 @@ public class ShoppingListControllerIT {
                 .andExpect(jsonPath("$.totalElements").value(is(2)));
     }
 
+    @Test
+    public void shouldReturnOnlyRequestedFields() throws Exception {
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+
+        mockMvc.perform(get("/shoppinglist").param("fields", "id,title"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[0].id").value(is(purchaseA.getId().intValue())))
+                .andExpect(jsonPath("$.content[0].title").value(is(purchaseA.getTitle())))
+                .andExpect(jsonPath("$.content[0].actual").doesNotExist())
+                .andExpect(jsonPath("$.content[0].period").doesNotExist());
+
+        mockMvc.perform(get("/shoppinglist/{id}", purchaseA.getId()).param("fields", "actual"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.actual").value(is(true)))
+                .andExpect(jsonPath("$.id").doesNotExist());
+    }
+
+    @Test
+    public void shouldReturnShoppingListSortedByTitle() throws Exception {
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+        Purchase purchaseB = purchaseStorage.save(new Purchase("Purchase B"));
+        Purchase purchaseC = purchaseStorage.save(new Purchase("Purchase B"));
+
+        mockMvc.perform(get("/shoppinglist/actual").param("sort", "title,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(is(purchaseC.getId().intValue())))
+                .andExpect(jsonPath("$.content[1].id").value(is(purchaseB.getId().intValue())))
+                .andExpect(jsonPath("$.content[2].id").value(is(purchaseA.getId().intValue())));
+    }
+
+    @Test
+    public void shouldNotReturnShoppingListWhenSortIsUnsupported() throws Exception {
+        mockMvc.perform(get("/shoppinglist").param("sort", "period"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.url").value(is("/shoppinglist")))
+                .andExpect(jsonPath("$.status").value(is(400)))
+                .andExpect(jsonPath("$.message").value(
+                        is("Invalid sort! Supported sorts are id, title, date in either direction.")));
+    }
+
+    @Test
+    public void shouldNotReturnShoppingListWhenFieldIsUnknown() throws Exception {
+        mockMvc.perform(get("/shoppinglist").param("fields", "id,price"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.url").value(is("/shoppinglist")))
+                .andExpect(jsonPath("$.status").value(is(400)))
+                .andExpect(jsonPath("$.message").value(is("Invalid fields! Unknown field 'price'.")));
+    }
+
     @Test
     public void shouldAddNewPurchase() throws Exception {
         mockMvc.perform(post("/shoppinglist")
@@ -136,7 +191,7 @@ public class ShoppingListControllerIT {
 
     @Test
     public void shouldReturnPurchase() throws Exception {
-        Purchase purchaseA = shoppingListRepository.save(new Purchase("Purchase A"));
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
 
         mockMvc.perform(get("/shoppinglist/{id}", purchaseA.getId()))
                 .andExpect(status().isOk())
@@ -156,9 +211,76 @@ public class ShoppingListControllerIT {
                         is("Purchase 10 not found.")));
     }
 
+    @Test
+    public void shouldReturnPurchasesByIds() throws Exception {
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+        Purchase purchaseB = purchaseStorage.save(new Purchase("Purchase B"));
+        long missingId = purchaseB.getId() + 1000;
+
+        mockMvc.perform(get("/shoppinglist/batch")
+                .param("ids", purchaseB.getId() + "," + missingId + "," + purchaseA.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.purchases[0].title").value(is(purchaseB.getTitle())))
+                .andExpect(jsonPath("$.purchases[1].title").value(is(purchaseA.getTitle())))
+                .andExpect(jsonPath("$.missing[0]").value(is((int) missingId)));
+
+        mockMvc.perform(post("/shoppinglist/batch")
+                .content("[" + purchaseA.getId() + "]")
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.purchases[0].title").value(is(purchaseA.getTitle())))
+                .andExpect(jsonPath("$.missing").isEmpty());
+    }
+
+    @Test
+    public void shouldReactivateDuePurchasesByIds() throws Exception {
+        Purchase duePurchase = new Purchase("Purchase A");
+        duePurchase.setActual(false);
+        duePurchase.setPeriod(1L);
+        duePurchase.setDate(new Date(new Date().getTime() - 30L * 3600 * 1000 * 24));
+        Purchase purchaseA = purchaseStorage.save(duePurchase);
+
+        mockMvc.perform(get("/shoppinglist/batch").param("ids", String.valueOf(purchaseA.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.purchases[0].actual").value(is(true)));
+
+        assertTrue(purchaseStorage.findById(purchaseA.getId()).get().isActual());
+    }
+
+    @Test
+    public void shouldAcceptLongerIdListsInRequestBody() throws Exception {
+        List<Long> ids = LongStream.range(1_000_000_000L, 1_000_000_101L).boxed().collect(Collectors.toList());
+
+        mockMvc.perform(get("/shoppinglist/batch")
+                .param("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(","))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(is(400)));
+
+        mockMvc.perform(post("/shoppinglist/batch")
+                .content(ids.toString())
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missing.length()").value(is(101)));
+    }
+
+    @Test
+    public void shouldNotReturnPurchasesByIdsWhenIdIsNull() throws Exception {
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+
+        mockMvc.perform(post("/shoppinglist/batch")
+                .content("[" + purchaseA.getId() + ", null]")
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(is(400)))
+                .andExpect(jsonPath("$.message").value(is("Invalid ids! Ids can not be null.")));
+    }
+
     @Test
     public void shouldNotChangePeriod() throws Exception {
-        Purchase purchaseA = shoppingListRepository.save(new Purchase("apple"));
+        Purchase purchaseA = purchaseStorage.save(new Purchase("apple"));
 
         mockMvc.perform(put("/shoppinglist/{id}", purchaseA.getId())
                 .param("period", "5")
@@ -173,7 +295,7 @@ public class ShoppingListControllerIT {
 
     @Test
     public void shouldNotChangePeriodWhenPeriodNotPositive() throws Exception {
-        Purchase purchaseA = shoppingListRepository.save(new Purchase("apple"));
+        Purchase purchaseA = purchaseStorage.save(new Purchase("apple"));
 
         mockMvc.perform(put("/shoppinglist/{id}", purchaseA.getId())
                 .param("period", "-1")
@@ -188,16 +310,16 @@ public class ShoppingListControllerIT {
 
     @Test
     public void shouldDeletePurchase() throws Exception {
-        Purchase purchaseA = shoppingListRepository.save(new Purchase("Purchase A"));
-        Purchase purchaseB = shoppingListRepository.save(new Purchase("Purchase B"));
-        Purchase purchaseC = shoppingListRepository.save(new Purchase("Purchase C"));
+        Purchase purchaseA = purchaseStorage.save(new Purchase("Purchase A"));
+        Purchase purchaseB = purchaseStorage.save(new Purchase("Purchase B"));
+        Purchase purchaseC = purchaseStorage.save(new Purchase("Purchase C"));
 
         mockMvc.perform(delete("/shoppinglist/{id}", purchaseA.getId()))
                 .andExpect(status().isOk());
 
-        assertEquals(shoppingListRepository.count(), 2);
-        assertTrue(shoppingListRepository.findById(purchaseB.getId()).isPresent());
-        assertTrue(shoppingListRepository.findById(purchaseC.getId()).isPresent());
+        assertEquals(purchaseStorage.count(), 2);
+        assertTrue(purchaseStorage.findById(purchaseB.getId()).isPresent());
+        assertTrue(purchaseStorage.findById(purchaseC.getId()).isPresent());
     }
 
     @Autowired
@@ -211,7 +333,7 @@ public class ShoppingListControllerIT {
         Date today = new Date();
         purchase.setDate(new Date(today.getTime() - 4 * 3600 * 1000 * 24));
 
-        Purchase purchaseA = shoppingListRepository.save(purchase);
+        Purchase purchaseA = purchaseStorage.save(purchase);
 
         mockMvc.perform(get("/shoppinglist/{id}", purchaseA.getId()))
                 .andExpect(status().isOk())
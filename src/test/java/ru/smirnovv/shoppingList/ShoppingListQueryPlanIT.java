@@ -0,0 +1,126 @@
+package ru.smirnovv.shoppingList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Интеграционный тест, проверяющий планы запросов {@link ShoppingListRepository} на большой таблице.
+ * Планы строятся для выражений, которые репозиторий действительно отправил в базу данных.
+ * Последовательное сканирование запрещено, поэтому Seq Scan в плане означает,
+ * что ни один индекс не может обслужить запрос.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+@Import(SqlStatementCounter.CountingConfiguration.class)
+public class ShoppingListQueryPlanIT {
+    private static final int PURCHASES = 100000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShoppingListRepository shoppingListRepository;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Before
+    public void createLargeShoppingList() {
+        jdbcTemplate.update("delete from purchase");
+        jdbcTemplate.update("insert into purchase (id, title, actual, date, period)"
+                + " select nextval('hibernate_sequence'), 'Purchase ' || g, g % 20 = 0,"
+                + " now() - (g % 60) * interval '1 day', case when g % 10 = 0 then g % 30 else 0 end"
+                + " from generate_series(1, ?) g", PURCHASES);
+        jdbcTemplate.execute("analyze purchase");
+        jdbcTemplate.execute("set local enable_seqscan = off");
+    }
+
+    private void assertIndexScan(final Runnable call, final String index) {
+        sqlStatementCounter.reset();
+        call.run();
+        List<String> statements = sqlStatementCounter.getStatements();
+        assertThat(statements, not(empty()));
+
+        StringBuilder plans = new StringBuilder();
+        for (String sql : statements) {
+            String plan = String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class));
+            assertThat(sql, plan, not(containsString("Seq Scan")));
+            plans.append(plan).append('\n');
+        }
+        assertThat(plans.toString(), containsString(index));
+    }
+
+    private static Pageable page(final Sort.Direction direction, final String... properties) {
+        return PageRequest.of(2, 20, Sort.by(direction, properties));
+    }
+
+    @Test
+    public void findAllShouldUseIndex() {
+        assertIndexScan(() -> shoppingListRepository.findAll(page(Sort.Direction.ASC, "id")), "purchase_pkey");
+        assertIndexScan(() -> shoppingListRepository.findAll(page(Sort.Direction.ASC, "id"), false,
+                EnumSet.of(PurchaseField.ID, PurchaseField.TITLE)), "purchase_pkey");
+    }
+
+    @Test
+    public void findByIdShouldUseIndex() {
+        assertIndexScan(() -> shoppingListRepository.findById(42L), "purchase_pkey");
+        assertIndexScan(() -> shoppingListRepository.findAllById(Arrays.asList(42L, 43L, 44L)), "purchase_pkey");
+    }
+
+    @Test
+    public void findAllByActualIsTrueShouldUseIndex() {
+        assertIndexScan(() -> shoppingListRepository.findAllByActualIsTrue(page(Sort.Direction.ASC, "id")),
+                "purchase_actual_id_idx");
+        assertIndexScan(() -> shoppingListRepository.findAll(page(Sort.Direction.ASC, "id"), true,
+                EnumSet.of(PurchaseField.ID, PurchaseField.TITLE)), "purchase_actual_id_idx");
+    }
+
+    @Test
+    public void supportedSortsShouldUseIndex() {
+        assertIndexScan(() -> shoppingListRepository.findAll(page(Sort.Direction.DESC, "title", "id")),
+                "purchase_title_id_idx");
+        assertIndexScan(() -> shoppingListRepository.findAll(page(Sort.Direction.ASC, "date", "id")),
+                "purchase_date_id_idx");
+        assertIndexScan(() -> shoppingListRepository.findAllByActualIsTrue(page(Sort.Direction.ASC, "title", "id")),
+                "purchase_actual_title_id_idx");
+        assertIndexScan(() -> shoppingListRepository.findAllByActualIsTrue(page(Sort.Direction.DESC, "date", "id")),
+                "purchase_actual_date_id_idx");
+    }
+
+    @Test
+    public void reactivateDuePurchasesShouldUseIndex() {
+        assertIndexScan(() -> shoppingListRepository.reactivateDuePurchases(500), "purchase_reactivation_idx");
+    }
+
+    @Test
+    public void findReactivationLagShouldUseIndex() {
+        assertIndexScan(shoppingListRepository::findReactivationLag, "purchase_reactivation_idx");
+    }
+
+    @Test
+    public void archiveCompletedPurchasesShouldUseIndex() {
+        assertIndexScan(() -> shoppingListRepository.archiveCompletedPurchases(30, 500), "purchase_archival_idx");
+    }
+}
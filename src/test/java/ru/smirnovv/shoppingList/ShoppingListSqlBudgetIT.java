@@ -0,0 +1,133 @@
+package ru.smirnovv.shoppingList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционный тест, проверяющий бюджет SQL-выражений для каждого маршрута {@link ShoppingListController}.
+ * Количество выражений не должно зависеть от количества записей о покупках.
+ * Изменяющие маршруты дополнительно отправляют одно уведомление об инвалидации кэша;
+ * пакетные маршруты обновляют все ставшие актуальными покупки одним запросом.
+ */
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(SqlStatementCounter.CountingConfiguration.class)
+public class ShoppingListSqlBudgetIT {
+    private static final int PURCHASES = 50;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ShoppingListRepository shoppingListRepository;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    private Purchase purchase;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @Before
+    public void createShoppingList() {
+        shoppingListRepository.deleteAll();
+
+        Date longAgo = new Date(new Date().getTime() - 30L * 3600 * 1000 * 24);
+        for (int i = 0; i < PURCHASES; i++) {
+            Purchase duePurchase = new Purchase("Purchase " + i);
+            duePurchase.setActual(i % 2 == 0);
+            duePurchase.setPeriod(1L);
+            duePurchase.setDate(longAgo);
+            ids.add(shoppingListRepository.save(duePurchase).getId());
+        }
+
+        purchase = shoppingListRepository.save(new Purchase("apple"));
+    }
+
+    private void assertBudget(final RequestBuilder request, final int budget) throws Exception {
+        sqlStatementCounter.reset();
+
+        mockMvc.perform(request).andExpect(status().isOk());
+
+        assertThat(sqlStatementCounter.getCount(), lessThanOrEqualTo(budget));
+    }
+
+    @Test
+    public void shoppingListShouldFitBudget() throws Exception {
+        assertBudget(get("/shoppinglist").param("size", "20"), 2);
+    }
+
+    @Test
+    public void actualShoppingListShouldFitBudget() throws Exception {
+        assertBudget(get("/shoppinglist/actual").param("size", "20"), 2);
+    }
+
+    @Test
+    public void addShouldFitBudget() throws Exception {
+        assertBudget(post("/shoppinglist")
+                .param("title", "pear")
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE), 3);
+    }
+
+    @Test
+    public void getPurchaseByIdShouldFitBudget() throws Exception {
+        assertBudget(get("/shoppinglist/{id}", purchase.getId()), 2);
+    }
+
+    @Test
+    public void changeRelevanceShouldFitBudget() throws Exception {
+        assertBudget(post("/shoppinglist/{id}", purchase.getId())
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE), 3);
+    }
+
+    @Test
+    public void changePeriodShouldFitBudget() throws Exception {
+        assertBudget(put("/shoppinglist/{id}", purchase.getId())
+                .param("period", "5")
+                .contentType(APPLICATION_FORM_URLENCODED_VALUE), 3);
+    }
+
+    @Test
+    public void removeShouldFitBudget() throws Exception {
+        assertBudget(delete("/shoppinglist/{id}", purchase.getId()), 3);
+    }
+
+    @Test
+    public void getPurchasesByIdsShouldFitBudget() throws Exception {
+        assertBudget(get("/shoppinglist/batch")
+                .param("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(","))), 3);
+    }
+
+    @Test
+    public void postPurchasesByIdsShouldFitBudget() throws Exception {
+        assertBudget(post("/shoppinglist/batch")
+                .content(ids.toString())
+                .contentType(APPLICATION_JSON), 3);
+    }
+}
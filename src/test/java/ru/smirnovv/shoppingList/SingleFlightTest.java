@@ -0,0 +1,108 @@
+package ru.smirnovv.shoppingList;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Тест для {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(meterRegistry, "test");
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private double count(final String result) {
+        return meterRegistry.counter("shoppinglist.singleflight.calls", "operation", "test", "result", result).count();
+    }
+
+    private String blockingLoad(final RuntimeException failure) {
+        calls.incrementAndGet();
+        entered.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        return "value";
+    }
+
+    private void awaitCoalesced() throws InterruptedException {
+        for (int i = 0; i < 500 && count("coalesced") < 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, count("coalesced"), 0);
+    }
+
+    @Test
+    public void shouldRunLoaderOnceForConcurrentIdenticalCalls() throws Exception {
+        Future<String> first = executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(null)));
+        assertTrue(entered.await(5, SECONDS));
+        Future<String> second = executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(null)));
+        awaitCoalesced();
+
+        release.countDown();
+
+        assertEquals("value", first.get(5, SECONDS));
+        assertEquals("value", second.get(5, SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, count("executed"), 0);
+    }
+
+    @Test
+    public void shouldPropagateFailureToEveryWaiterAndClearEntry() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Storage failed");
+        Future<String> first = executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(failure)));
+        assertTrue(entered.await(5, SECONDS));
+        Future<String> second = executor.submit(() -> singleFlight.execute("key", () -> blockingLoad(failure)));
+        awaitCoalesced();
+
+        release.countDown();
+
+        for (Future<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get(5, SECONDS);
+                fail("Failure was not propagated");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+        assertEquals(1, calls.get());
+
+        assertEquals("value", singleFlight.execute("key", () -> "value"));
+        assertEquals(2, count("executed"), 0);
+    }
+}
@@ -0,0 +1,249 @@
+package ru.smirnovv.shoppingList;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Счетчик SQL-выражений, отправленных приложением в базу данных.
+ * Оборачивает {@link DataSource} и считает каждое подготовленное выражение потока,
+ * сбросившего счетчик, чтобы не учитывать фоновые задачи.
+ * Текст подготовленных выражений запоминается вместе с параметрами, чтобы тесты могли получить план
+ * именно того запроса, который сгенерировал Hibernate.
+ */
+public class SqlStatementCounter {
+    /**
+     * Количество выражений с последнего сброса.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Подготовленные выражения с последнего сброса.
+     */
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+    /**
+     * Поток, выражения которого считаются.
+     */
+    private volatile Thread owner;
+
+    /**
+     * Сбрасывает счетчик и начинает считать выражения текущего потока.
+     */
+    public void reset() {
+        owner = Thread.currentThread();
+        count.set(0);
+        statements.clear();
+    }
+
+    /**
+     * Возвращает количество выражений с последнего сброса.
+     *
+     * @return количество выражений.
+     */
+    public int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Возвращает подготовленные выражения с последнего сброса, подставив в них значения параметров.
+     *
+     * @return тексты выражений в порядке выполнения.
+     */
+    public List<String> getStatements() {
+        return statements.stream().map(RecordedStatement::toSql).collect(Collectors.toList());
+    }
+
+    /**
+     * Оборачивает соединение, считая вызовы prepareStatement, prepareCall и createStatement.
+     *
+     * @param connection исходное соединение.
+     * @return соединение со счетчиком.
+     */
+    private Connection wrap(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    boolean counted = ("prepareStatement".equals(name) || "prepareCall".equals(name)
+                            || "createStatement".equals(name)) && Thread.currentThread() == owner;
+                    if (counted) {
+                        count.incrementAndGet();
+                    }
+                    Object result = invoke(method, connection, args);
+                    if (counted && "prepareStatement".equals(name)) {
+                        RecordedStatement statement = new RecordedStatement((String) args[0]);
+                        statements.add(statement);
+                        return statement.wrap((PreparedStatement) result);
+                    }
+
+                    return result;
+                });
+    }
+
+    /**
+     * Вызывает метод исходного объекта, пробрасывая его исключение.
+     *
+     * @param method метод.
+     * @param target исходный объект.
+     * @param args   аргументы.
+     * @return результат метода.
+     * @throws Throwable исключение метода.
+     */
+    private static Object invoke(final Method method, final Object target, final Object[] args)
+            throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Подготовленное выражение вместе со значениями параметров.
+     */
+    private static final class RecordedStatement {
+        /**
+         * Текст выражения с параметрами.
+         */
+        private final String sql;
+
+        /**
+         * Значения параметров по номеру.
+         */
+        private final Map<Integer, Object> parameters = new HashMap<>();
+
+        /**
+         * Создает экземпляр с текстом выражения.
+         *
+         * @param sql текст выражения с параметрами.
+         */
+        private RecordedStatement(final String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Оборачивает выражение, запоминая значения параметров из вызовов set*.
+         *
+         * @param statement исходное выражение.
+         * @return выражение, запоминающее параметры.
+         */
+        private PreparedStatement wrap(final PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2
+                                && args[0] instanceof Integer) {
+                            if ("setNull".equals(name)) {
+                                parameters.put((Integer) args[0], null);
+                            } else {
+                                parameters.put((Integer) args[0], args[1]);
+                            }
+                        }
+
+                        return invoke(method, statement, args);
+                    });
+        }
+
+        /**
+         * Возвращает текст выражения, подставив значения параметров литералами.
+         *
+         * @return текст выражения без параметров.
+         */
+        private String toSql() {
+            StringBuilder result = new StringBuilder();
+            int index = 0;
+            for (char c : sql.toCharArray()) {
+                if (c == '?') {
+                    result.append(literal(parameters.get(++index)));
+                } else {
+                    result.append(c);
+                }
+            }
+
+            return result.toString();
+        }
+
+        /**
+         * Возвращает литерал SQL для значения параметра.
+         *
+         * @param value значение параметра.
+         * @return литерал SQL.
+         */
+        private static String literal(final Object value) {
+            if (value == null) {
+                return "null";
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return value.toString();
+            }
+
+            return "'" + value.toString().replace("'", "''") + "'";
+        }
+    }
+
+    /**
+     * Конфигурация, подменяющая {@link DataSource} приложения на считающую обертку.
+     */
+    @TestConfiguration
+    public static class CountingConfiguration {
+        /**
+         * Возвращает счетчик SQL-выражений.
+         *
+         * @return счетчик SQL-выражений.
+         */
+        @Bean
+        public static SqlStatementCounter sqlStatementCounter() {
+            return new SqlStatementCounter();
+        }
+
+        /**
+         * Возвращает обработчик, оборачивающий {@link DataSource} счетчиком.
+         *
+         * @param counter счетчик SQL-выражений.
+         * @return обработчик бинов.
+         */
+        @Bean
+        public static BeanPostProcessor countingDataSourcePostProcessor(final SqlStatementCounter counter) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+
+                    return new DelegatingDataSource((DataSource) bean) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return counter.wrap(super.getConnection());
+                        }
+
+                        @Override
+                        public Connection getConnection(final String username, final String password)
+                                throws SQLException {
+                            return counter.wrap(super.getConnection(username, password));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}